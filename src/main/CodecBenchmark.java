@@ -0,0 +1,187 @@
+package main;
+
+import model.*;
+import storage.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Benchmark of the binary paper codec against Java serialization.
+ * Encodes and decodes the same papers in memory with each format, then writes and reloads
+ * a FileStorage snapshot in both formats. Prints records/sec and the encoded sizes:
+ *   serialized list   - the original snapshot format, one ObjectOutputStream for the whole list
+ *   serialized record - JavaSerializationCodec, one ObjectOutputStream per record (log records)
+ *   PaperCodec        - the hand-written binary codec
+ *
+ * Usage: CodecBenchmark [papers] [rounds]
+ */
+public class CodecBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+
+    /**
+     * One way of turning a list of papers into bytes and back
+     */
+    private interface Format {
+        byte[] encode(List<Paper> papers) throws IOException;
+
+        List<Paper> decode(byte[] bytes, int count) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<Paper> papers = createPapers(count);
+
+        Map<String, Format> formats = new LinkedHashMap<>();
+        formats.put("serialized list", serializedList());
+        formats.put("serialized record", perRecord(new JavaSerializationCodec<>(Paper.class)));
+        formats.put("PaperCodec", perRecord(new PaperCodec()));
+
+        System.out.printf("%d papers, best of %d rounds%n", count, rounds);
+        System.out.printf("%-18s %12s %10s %14s %14s%n", "format", "bytes", "bytes/rec", "encode rec/s", "decode rec/s");
+        for (Map.Entry<String, Format> entry : formats.entrySet()) {
+            run(entry.getKey(), entry.getValue(), papers, rounds);
+        }
+
+        System.out.println();
+        System.out.printf("%-18s %12s %10s %10s%n", "snapshot", "file bytes", "save ms", "load ms");
+        snapshot("serialized list", null, papers);
+        snapshot("PaperCodec", new PaperCodec(), papers);
+    }
+
+    private static void run(String name, Format format, List<Paper> papers, int rounds) throws IOException {
+        byte[] encoded = format.encode(papers);
+        long bestEncode = Long.MAX_VALUE;
+        long bestDecode = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+            long start = System.nanoTime();
+            encoded = format.encode(papers);
+            long encodeNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Paper> decoded = format.decode(encoded, papers.size());
+            long decodeNanos = System.nanoTime() - start;
+            if (decoded.size() != papers.size()) {
+                throw new IllegalStateException(name + " decoded " + decoded.size() + " papers");
+            }
+
+            if (round >= WARMUP_ROUNDS) {
+                bestEncode = Math.min(bestEncode, encodeNanos);
+                bestDecode = Math.min(bestDecode, decodeNanos);
+            }
+        }
+
+        System.out.printf("%-18s %12d %10d %14.0f %14.0f%n", name, encoded.length, encoded.length / papers.size(),
+                papers.size() / (bestEncode / 1e9), papers.size() / (bestDecode / 1e9));
+    }
+
+    /**
+     * Write a snapshot with FileStorage and load it back, as the application does at shutdown and startup
+     */
+    private static void snapshot(String name, EntityCodec<Paper> codec, List<Paper> papers) throws IOException {
+        Path dir = Files.createTempDirectory("codec-benchmark");
+        try {
+            String file = dir.resolve("papers.dat").toString();
+            FileStorage<Paper> storage = new FileStorage<>(file, Paper.class, Paper::getPaperId, codec, null, 0);
+            long start = System.nanoTime();
+            storage.saveAll(papers);
+            long saveNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            FileStorage<Paper> loaded = new FileStorage<>(file, Paper.class, Paper::getPaperId, codec, null, 0);
+            long loadNanos = System.nanoTime() - start;
+            if (loaded.findAll().size() != papers.size()) {
+                throw new IllegalStateException(name + " snapshot loaded " + loaded.findAll().size() + " papers");
+            }
+
+            System.out.printf("%-18s %12d %10.1f %10.1f%n", name, Files.size(Path.of(file)),
+                    saveNanos / 1e6, loadNanos / 1e6);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static Format serializedList() {
+        return new Format() {
+            @Override
+            public byte[] encode(List<Paper> papers) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(new ArrayList<>(papers));
+                }
+                return bytes.toByteArray();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<Paper> decode(byte[] bytes, int count) throws IOException {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (List<Paper>) in.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+
+    private static Format perRecord(EntityCodec<Paper> codec) {
+        return new Format() {
+            @Override
+            public byte[] encode(List<Paper> papers) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                for (Paper paper : papers) {
+                    codec.encode(paper, out);
+                }
+                out.flush();
+                return bytes.toByteArray();
+            }
+
+            @Override
+            public List<Paper> decode(byte[] bytes, int count) throws IOException {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+                List<Paper> papers = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    papers.add(codec.decode(in, codec.version()));
+                }
+                return papers;
+            }
+        };
+    }
+
+    private static List<Paper> createPapers(int count) {
+        Random random = new Random(42);
+        String[] words = {"distributed", "learning", "graph", "storage", "protocol", "secure", "neural",
+                "query", "latency", "consensus", "compiler", "vision", "energy", "index", "cache"};
+        List<Paper> papers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> keywords = List.of(words[random.nextInt(words.length)], words[random.nextInt(words.length)]);
+            Paper paper = new Paper("Paper " + i + " on " + String.join(" ", keywords),
+                    text(random, words, 150), text(random, words, 1500),
+                    "author-" + (i % 500), "Author " + (i % 500), keywords);
+            paper.assignReviewer("reviewer-" + random.nextInt(200));
+            paper.assignReviewer("reviewer-" + random.nextInt(200));
+            papers.add(paper);
+        }
+        return papers;
+    }
+
+    private static String text(Random random, String[] words, int length) {
+        StringBuilder text = new StringBuilder(length * 8);
+        for (int i = 0; i < length; i++) {
+            text.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package main;
+
+import model.*;
+import storage.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded stress test and throughput harness for ConcurrentDataStorage.
+ * The stress phase races many threads on a small set of IDs and checks that every
+ * operation took effect exactly once:
+ *   increments - compare-and-update retry loops on shared papers; the stored counters
+ *                must add up to the number of successful updates
+ *   unique keys - every thread registers the same emails; exactly one save per email wins
+ *   deletes    - every thread deletes the same papers; exactly one delete per paper wins
+ * The throughput phase runs a 90% read / 10% write mix at increasing thread counts.
+ * Exits with status 1 if an invariant is broken.
+ *
+ * Usage: ConcurrentStorageStressTest [seconds per thread count] [comma-separated thread counts]
+ */
+public class ConcurrentStorageStressTest {
+    private static final int STRESS_THREADS = 32;
+    private static final int SHARED_PAPERS = 16;
+    private static final int INCREMENTS_PER_THREAD = 2000;
+    private static final int CONTESTED_KEYS = 500;
+    private static final int BENCHMARK_PAPERS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int[] threadCounts = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 2, 4, 8, 16, 32, 64};
+
+        boolean ok = checkIncrements() & checkUniqueSaves() & checkDeletes();
+        System.out.println(ok ? "Stress test passed" : "Stress test FAILED");
+
+        System.out.printf("%n%8s %12s %12s%n", "threads", "ops", "ops/s");
+        for (int threads : threadCounts) {
+            benchmark(threads, seconds * 1000L);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static Paper paper(String title) {
+        return new Paper(title, "Abstract", "Content", "author", "Author", List.of("stress"));
+    }
+
+    /**
+     * Run a task on several threads at once and wait for all of them
+     */
+    private static void race(int threads, Callable<Void> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+        }
+        for (Future<Void> result : results) {
+            result.get();
+        }
+    }
+
+    private static boolean report(String name, long expected, long actual) {
+        boolean ok = expected == actual;
+        System.out.printf("%-14s expected %d, got %d%s%n", name, expected, actual, ok ? "" : "  <-- FAILED");
+        return ok;
+    }
+
+    /**
+     * Papers hold a counter in their title, incremented with compare-and-update retry loops
+     */
+    private static boolean checkIncrements() throws Exception {
+        ConcurrentDataStorage<Paper> storage = new ConcurrentDataStorage<>(Paper::getPaperId);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < SHARED_PAPERS; i++) {
+            Paper paper = paper("0");
+            storage.save(paper);
+            ids.add(paper.getPaperId());
+        }
+
+        AtomicLong successes = new AtomicLong();
+        race(STRESS_THREADS, () -> {
+            Random random = ThreadLocalRandom.current();
+            for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+                String id = ids.get(random.nextInt(ids.size()));
+                while (true) {
+                    Paper current = storage.findById(id).orElseThrow();
+                    Paper updated = current.copy();
+                    updated.setTitle(String.valueOf(Long.parseLong(current.getTitle()) + 1));
+                    if (storage.compareAndUpdate(current.getVersion(), updated)) {
+                        successes.incrementAndGet();
+                        break;
+                    }
+                }
+            }
+            return null;
+        });
+
+        long total = 0;
+        for (String id : ids) {
+            total += Long.parseLong(storage.findById(id).orElseThrow().getTitle());
+        }
+        return report("increments", successes.get(), total)
+                & report("updates", (long) STRESS_THREADS * INCREMENTS_PER_THREAD, successes.get());
+    }
+
+    /**
+     * All threads register the same emails; the unique index must let exactly one through each
+     */
+    private static boolean checkUniqueSaves() throws Exception {
+        ConcurrentDataStorage<User> storage = new ConcurrentDataStorage<>(User::getUserId);
+        storage.createUniqueIndex("email", User::getEmail);
+
+        AtomicLong saved = new AtomicLong();
+        race(STRESS_THREADS, () -> {
+            for (int i = 0; i < CONTESTED_KEYS; i++) {
+                if (storage.save(new Student("Student", "s" + i + "@stress.test", "pw", "CS", "S" + i))) {
+                    saved.incrementAndGet();
+                }
+            }
+            return null;
+        });
+
+        long indexed = 0;
+        for (int i = 0; i < CONTESTED_KEYS; i++) {
+            indexed += storage.findByUniqueIndex("email", "s" + i + "@stress.test").isPresent() ? 1 : 0;
+        }
+        return report("unique saves", CONTESTED_KEYS, saved.get())
+                & report("stored users", CONTESTED_KEYS, storage.findAll().size())
+                & report("email index", CONTESTED_KEYS, indexed);
+    }
+
+    /**
+     * All threads delete the same papers; each delete must succeed exactly once
+     */
+    private static boolean checkDeletes() throws Exception {
+        ConcurrentDataStorage<Paper> storage = new ConcurrentDataStorage<>(Paper::getPaperId);
+        storage.createIndex("keyword", Paper::getKeywords);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < CONTESTED_KEYS; i++) {
+            Paper paper = paper("Paper " + i);
+            storage.save(paper);
+            ids.add(paper.getPaperId());
+        }
+
+        AtomicLong deleted = new AtomicLong();
+        race(STRESS_THREADS, () -> {
+            for (String id : ids) {
+                if (storage.deleteById(id)) {
+                    deleted.incrementAndGet();
+                }
+            }
+            return null;
+        });
+
+        return report("deletes", CONTESTED_KEYS, deleted.get())
+                & report("left", 0, storage.findAll().size())
+                & report("keyword index", 0, storage.findByIndex("keyword", "stress").size());
+    }
+
+    /**
+     * 90% point reads, 10% compare-and-update, spread over many papers
+     */
+    private static void benchmark(int threads, long durationMillis) throws Exception {
+        ConcurrentDataStorage<Paper> storage = new ConcurrentDataStorage<>(Paper::getPaperId);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < BENCHMARK_PAPERS; i++) {
+            Paper paper = paper("Paper " + i);
+            storage.save(paper);
+            ids.add(paper.getPaperId());
+        }
+
+        AtomicLong ops = new AtomicLong();
+        long deadline = System.currentTimeMillis() + durationMillis;
+        long start = System.nanoTime();
+        race(threads, () -> {
+            Random random = ThreadLocalRandom.current();
+            long count = 0;
+            while (System.currentTimeMillis() < deadline) {
+                for (int i = 0; i < 100; i++) {
+                    String id = ids.get(random.nextInt(ids.size()));
+                    Paper current = storage.findById(id).orElseThrow();
+                    if (random.nextInt(10) == 0) {
+                        Paper updated = current.copy();
+                        updated.setStatus(ReviewStatus.IN_PROGRESS);
+                        storage.compareAndUpdate(current.getVersion(), updated);
+                    }
+                }
+                count += 100;
+            }
+            ops.addAndGet(count);
+            return null;
+        });
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%8d %12d %12.0f%n", threads, ops.get(), ops.get() / elapsedSeconds);
+    }
+}
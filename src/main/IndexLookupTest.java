@@ -0,0 +1,165 @@
+package main;
+
+import model.*;
+import storage.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Harness comparing the id hash index of InMemoryStorage with the linear scan it replaced.
+ * For each table size, random IDs are looked up, updated and deleted in both. Prints
+ * operations/sec per operation:
+ *   scan  - the original list-backed storage, every call walks the list comparing IDs
+ *   index - InMemoryStorage, every call is one hash lookup
+ *
+ * Usage: IndexLookupTest [operations per measurement] [comma-separated table sizes]
+ */
+public class IndexLookupTest {
+    private static final int WARMUP_ROUNDS = 2;
+
+    /**
+     * The list-backed storage before the index, reduced to the operations measured
+     */
+    private static class LinearScan<T> {
+        private final List<T> objects = new ArrayList<>();
+        private final Function<T, String> idExtractor;
+
+        LinearScan(Function<T, String> idExtractor) {
+            this.idExtractor = idExtractor;
+        }
+
+        void save(T object) {
+            objects.add(object);
+        }
+
+        Optional<T> findById(String id) {
+            for (T obj : objects) {
+                if (idExtractor.apply(obj).equals(id)) {
+                    return Optional.of(obj);
+                }
+            }
+            return Optional.empty();
+        }
+
+        boolean update(T object) {
+            String id = idExtractor.apply(object);
+            for (int i = 0; i < objects.size(); i++) {
+                if (idExtractor.apply(objects.get(i)).equals(id)) {
+                    objects.set(i, object);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean deleteById(String id) {
+            for (int i = 0; i < objects.size(); i++) {
+                if (idExtractor.apply(objects.get(i)).equals(id)) {
+                    objects.remove(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int[] sizes = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 10_000, 100_000};
+
+        System.out.printf("%8s %-11s %-6s %14s %8s%n", "size", "operation", "kind", "ops/s", "speedup");
+        for (int size : sizes) {
+            run(size, operations);
+        }
+    }
+
+    private static void run(int size, int operations) {
+        List<Paper> papers = createPapers(size);
+        Random random = new Random(size);
+        List<String> ids = new ArrayList<>(operations);
+        for (int i = 0; i < operations; i++) {
+            ids.add(papers.get(random.nextInt(size)).getPaperId());
+        }
+
+        // Updates replace a paper with a copy of itself, so both storages keep the same contents
+        compare(size, "findById", operations,
+                scan -> count(ids, id -> scan.findById(id).isPresent()),
+                index -> count(ids, id -> index.findById(id).isPresent()),
+                papers);
+        compare(size, "update", operations,
+                scan -> count(ids, id -> scan.update(scan.findById(id).orElseThrow().copy())),
+                index -> count(ids, id -> index.update(index.findById(id).orElseThrow().copy())),
+                papers);
+
+        // Every delete removes a distinct paper, at most a tenth of the table
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<String> deletes = distinct.subList(0, Math.min(distinct.size(), size / 10));
+        compare(size, "deleteById", deletes.size(),
+                scan -> count(deletes, scan::deleteById),
+                index -> count(deletes, index::deleteById),
+                papers);
+    }
+
+    /**
+     * Time the same operations against fresh copies of both storages, best of several rounds
+     */
+    private static void compare(int size, String operation, int operations,
+                                ToIntFunction<LinearScan<Paper>> scanOps,
+                                ToIntFunction<InMemoryStorage<Paper>> indexOps, List<Paper> papers) {
+        long bestScan = Long.MAX_VALUE;
+        long bestIndex = Long.MAX_VALUE;
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            LinearScan<Paper> scan = new LinearScan<>(Paper::getPaperId);
+            InMemoryStorage<Paper> index = new InMemoryStorage<>(Paper::getPaperId);
+            for (Paper paper : papers) {
+                scan.save(paper.copy());
+                index.save(paper.copy());
+            }
+
+            long start = System.nanoTime();
+            int scanDone = scanOps.applyAsInt(scan);
+            long scanNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int indexDone = indexOps.applyAsInt(index);
+            long indexNanos = System.nanoTime() - start;
+
+            if (scanDone != operations || indexDone != operations) {
+                throw new IllegalStateException(operation + " succeeded " + scanDone + "/" + indexDone
+                        + " of " + operations + " times");
+            }
+            bestScan = Math.min(bestScan, scanNanos);
+            bestIndex = Math.min(bestIndex, indexNanos);
+        }
+
+        System.out.printf("%8d %-11s %-6s %14.0f%n", size, operation, "scan", operations / (bestScan / 1e9));
+        System.out.printf("%8d %-11s %-6s %14.0f %7.0fx%n", size, operation, "index", operations / (bestIndex / 1e9),
+                (double) bestScan / bestIndex);
+    }
+
+    private interface IdOperation {
+        boolean apply(String id);
+    }
+
+    private static int count(List<String> ids, IdOperation operation) {
+        int done = 0;
+        for (String id : ids) {
+            if (operation.apply(id)) {
+                done++;
+            }
+        }
+        return done;
+    }
+
+    private static List<Paper> createPapers(int count) {
+        List<Paper> papers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            papers.add(new Paper("Paper " + i, "Abstract", "Content", "author", "Author", List.of("test")));
+        }
+        return papers;
+    }
+}
@@ -0,0 +1,486 @@
+package main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.*;
+import service.*;
+import storage.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless HTTP front end for the services, so many users can work at the same time.
+ * Every request runs on its own virtual thread. Instead of the single currentUser of the
+ * console application, each client logs in and sends the returned token with later
+ * requests ("Authorization: Bearer <token>"); the token identifies its session.
+ *
+ * Parameters are read from the query string and from form-encoded request bodies;
+ * responses are JSON.
+ */
+public class PeerReviewServer {
+    public static final int DEFAULT_PORT = 8080;
+    private static final long SESSION_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+    private static final long SESSION_SWEEP_MILLIS = 60 * 1000L;
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 200;
+    private static final int MAX_GROUP_SIZE = 256;  // most log records made durable by one fsync
+
+    /**
+     * A logged-in client. Only the user ID is kept so changes to the user are seen at once.
+     */
+    private static class Session {
+        final String userId;
+        volatile long lastAccess;
+
+        Session(String userId) {
+            this.userId = userId;
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Error reported to the client with an HTTP status code
+     */
+    private static class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final UserService userService;
+    private final PaperService paperService;
+    private final ReviewService reviewService;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledExecutorService sessionSweeper;
+
+    public PeerReviewServer(UserService userService, PaperService paperService, ReviewService reviewService) {
+        this.userService = userService;
+        this.paperService = paperService;
+        this.reviewService = reviewService;
+    }
+
+    /**
+     * Open the storages under the data directory and serve them until the process is stopped
+     */
+    public static void run(int port) throws IOException {
+        PeerReviewSystem.ensureDataDirectory();
+
+        // The file storages serialize their writes; the concurrent layer in front lets
+        // sessions read without locking and write different objects in parallel. Writes
+        // arriving together share one fsync instead of queueing for one each.
+        DataStorage<User> userStorage = new ConcurrentDataStorage<>(User::getUserId,
+                PeerReviewSystem.openStorage("users", User.class, User::getUserId, new UserCodec(),
+                        WriteAheadLog.SyncPolicy.GROUP, MAX_GROUP_SIZE));
+        DataStorage<Paper> paperStorage = new ConcurrentDataStorage<>(Paper::getPaperId,
+                PeerReviewSystem.openStorage("papers", Paper.class, Paper::getPaperId, PeerReviewSystem.paperCodec(),
+                        WriteAheadLog.SyncPolicy.GROUP, MAX_GROUP_SIZE));
+        DataStorage<Review> reviewStorage = new ConcurrentDataStorage<>(Review::getReviewId,
+                PeerReviewSystem.openStorage("reviews", Review.class, Review::getReviewId, new ReviewCodec(),
+                        WriteAheadLog.SyncPolicy.GROUP, MAX_GROUP_SIZE));
+
+        UserService userService = new UserService(userStorage);
+        PaperService paperService = new PaperService(paperStorage, userService);
+        ReviewService reviewService = new ReviewService(reviewStorage, paperService, userService);
+        PeerReviewSystem.ensureDefaultAdmin(userService);
+
+        PeerReviewServer server = new PeerReviewServer(userService, paperService, reviewService);
+        server.start(port);
+        System.out.println("Serving on http://localhost:" + server.getPort() + "/");
+    }
+
+    /**
+     * Start listening on localhost
+     * @param port Port to listen on, or 0 to pick a free one
+     */
+    public void start(int port) throws IOException {
+        // Headers and body are written separately; without TCP_NODELAY small responses
+        // wait for the client's delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+
+        // Sessions that are never presented again would otherwise stay in memory forever
+        sessionSweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sessionSweeper.scheduleAtFixedRate(this::evictExpiredSessions,
+                SESSION_SWEEP_MILLIS, SESSION_SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdown();
+            sessionSweeper.shutdownNow();
+            server = null;
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            Map<String, String> params = readParams(exchange);
+            body = route(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath(), exchange, params);
+        } catch (RequestException e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestURI() + ": " + e);
+            status = 500;
+            body = error("Internal error");
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String route(String request, HttpExchange exchange, Map<String, String> params) {
+        switch (request) {
+            case "POST /login":
+                return login(params);
+            case "POST /register":
+                return register(params);
+        }
+
+        User user = currentUser(exchange);
+        return switch (request) {
+            case "POST /logout" -> logout(exchange);
+            case "GET /me" -> json(user);
+            case "GET /papers" -> listPapers(user, params);
+            case "GET /papers/mine" -> jsonPapers(paperService.getPapersByAuthor(user.getUserId()));
+            case "GET /papers/assigned" -> jsonPapers(paperService.getPapersForReviewer(user.getUserId()));
+            case "GET /papers/search" -> searchPapers(user, params);
+            case "GET /paper" -> viewPaper(user, required(params, "id"));
+            case "POST /papers" -> submitPaper(user, params);
+            case "GET /reviews" -> listReviews(user, required(params, "paperId"));
+            case "POST /reviews" -> submitReview(user, params);
+            case "GET /stats" -> stats(user);
+            default -> throw new RequestException(404, "Unknown endpoint " + request);
+        };
+    }
+
+    // ----- Sessions -----
+
+    private String login(Map<String, String> params) {
+        Optional<User> userOpt = userService.login(required(params, "email"), required(params, "password"));
+        if (userOpt.isEmpty()) {
+            throw new RequestException(401, "Invalid email or password");
+        }
+
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(userOpt.get().getUserId()));
+        return "{\"token\":" + quote(token) + ",\"user\":" + json(userOpt.get()) + "}";
+    }
+
+    private String logout(HttpExchange exchange) {
+        sessions.remove(token(exchange));
+        return "{\"ok\":true}";
+    }
+
+    /**
+     * The user of the session named by the request's token
+     */
+    private User currentUser(HttpExchange exchange) {
+        String token = token(exchange);
+        Session session = token == null ? null : sessions.get(token);
+        long now = System.currentTimeMillis();
+
+        if (session == null || isExpired(session, now)) {
+            if (session != null) {
+                sessions.remove(token, session);
+            }
+            throw new RequestException(401, "Not logged in");
+        }
+        session.lastAccess = now;
+
+        return userService.findUserById(session.userId)
+                .orElseThrow(() -> new RequestException(401, "User no longer exists"));
+    }
+
+    private static boolean isExpired(Session session, long now) {
+        return now - session.lastAccess > SESSION_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Drop every session that has timed out, run periodically by the session sweeper
+     */
+    private void evictExpiredSessions() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> isExpired(session, now));
+    }
+
+    private static String token(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        return header.substring("Bearer ".length()).trim();
+    }
+
+    // ----- Users -----
+
+    private String register(Map<String, String> params) {
+        String type = required(params, "type");
+        String name = required(params, "name");
+        String email = required(params, "email");
+        String password = required(params, "password");
+        String department = params.getOrDefault("department", "");
+
+        boolean success = switch (type) {
+            case "student" -> userService.registerStudent(name, email, password, department,
+                    params.getOrDefault("studentId", ""));
+            case "faculty" -> userService.registerFaculty(name, email, password, department,
+                    params.getOrDefault("position", ""));
+            default -> throw new RequestException(400, "type must be student or faculty");
+        };
+        if (!success) {
+            throw new RequestException(409, "Email is already registered");
+        }
+        return "{\"ok\":true}";
+    }
+
+    // ----- Papers -----
+
+    private String listPapers(User user, Map<String, String> params) {
+        requireAdmin(user);
+        String sortKey = "date".equals(params.get("sort"))
+                ? PaperService.SORT_BY_SUBMISSION_DATE
+                : PaperService.SORT_BY_TITLE;
+        Page<Paper> page = paperService.getPapersPage(params.get("cursor"), limit(params), sortKey);
+        return "{\"papers\":" + jsonPapers(page.items()) + ",\"nextCursor\":" + quote(page.nextCursor()) + "}";
+    }
+
+    private String searchPapers(User user, Map<String, String> params) {
+        List<Paper> papers = paperService.searchPapers(required(params, "q"), limit(params));
+        if (user instanceof Admin) {
+            return jsonPapers(papers);
+        }
+
+        // Other users' papers are listed without their authors
+        List<Paper> visible = new ArrayList<>(papers.size());
+        for (Paper paper : papers) {
+            visible.add(paper.getAuthorId().equals(user.getUserId()) ? paper : paper.getBlindedCopy());
+        }
+        return jsonPapers(visible);
+    }
+
+    private String viewPaper(User user, String paperId) {
+        Paper paper = paperService.findPaperById(paperId)
+                .orElseThrow(() -> new RequestException(404, "Paper not found"));
+
+        if (user instanceof Admin || paper.getAuthorId().equals(user.getUserId())) {
+            return json(paper, true);
+        }
+        if (paper.hasReviewer(user.getUserId())) {
+            return json(paper.getBlindedCopy(), true);
+        }
+        throw new RequestException(403, "Not allowed to view this paper");
+    }
+
+    private String submitPaper(User user, Map<String, String> params) {
+        List<String> keywords = new ArrayList<>();
+        for (String keyword : params.getOrDefault("keywords", "").split(",")) {
+            if (!keyword.isBlank()) {
+                keywords.add(keyword.trim());
+            }
+        }
+
+        boolean success = paperService.submitPaper(required(params, "title"), required(params, "abstract"),
+                params.getOrDefault("content", ""), user.getUserId(), keywords);
+        if (!success) {
+            throw new RequestException(400, "Paper submission failed");
+        }
+        return "{\"ok\":true}";
+    }
+
+    // ----- Reviews -----
+
+    private String listReviews(User user, String paperId) {
+        Paper paper = paperService.findPaperById(paperId)
+                .orElseThrow(() -> new RequestException(404, "Paper not found"));
+        if (!(user instanceof Admin) && !paper.getAuthorId().equals(user.getUserId())) {
+            throw new RequestException(403, "Not allowed to view these reviews");
+        }
+
+        StringJoiner result = new StringJoiner(",", "[", "]");
+        for (Review review : reviewService.getReviewsForPaper(paperId)) {
+            result.add(json(review));
+        }
+        return result.toString();
+    }
+
+    private String submitReview(User user, Map<String, String> params) {
+        int rating;
+        try {
+            rating = Integer.parseInt(required(params, "rating"));
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, "rating must be a number");
+        }
+
+        boolean success = reviewService.submitReview(required(params, "paperId"), user.getUserId(),
+                rating, params.getOrDefault("comments", ""));
+        if (!success) {
+            throw new RequestException(409, "Review submission failed; not assigned or already reviewed");
+        }
+        return "{\"ok\":true}";
+    }
+
+    private String stats(User user) {
+        requireAdmin(user);
+        StringJoiner result = new StringJoiner(",", "{", "}");
+        for (Map.Entry<ReviewStatus, Integer> entry : paperService.getStatusCounts().entrySet()) {
+            result.add(quote(entry.getKey().name()) + ":" + entry.getValue());
+        }
+        return "{\"papersByStatus\":" + result + ",\"sessions\":" + sessions.size() + "}";
+    }
+
+    private static void requireAdmin(User user) {
+        if (!(user instanceof Admin)) {
+            throw new RequestException(403, "Admins only");
+        }
+    }
+
+    // ----- Request parsing -----
+
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        if (body.length > 0) {
+            parseForm(new String(body, StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new RequestException(400, "Missing parameter " + name);
+        }
+        return value;
+    }
+
+    private static int limit(Map<String, String> params) {
+        try {
+            int limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT)));
+            return Math.max(1, Math.min(limit, MAX_LIMIT));
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, "limit must be a number");
+        }
+    }
+
+    // ----- JSON output -----
+
+    private static String json(User user) {
+        return "{\"userId\":" + quote(user.getUserId()) + ",\"name\":" + quote(user.getName())
+                + ",\"email\":" + quote(user.getEmail()) + ",\"role\":" + quote(user.getRole()) + "}";
+    }
+
+    private static String json(Paper paper, boolean withText) {
+        StringBuilder json = new StringBuilder("{\"paperId\":").append(quote(paper.getPaperId()))
+                .append(",\"title\":").append(quote(paper.getTitle()))
+                .append(",\"authorName\":").append(quote(paper.getAuthorName()))
+                .append(",\"status\":").append(quote(paper.getStatus().name()))
+                .append(",\"submissionDate\":").append(quote(String.valueOf(paper.getSubmissionDate())))
+                .append(",\"keywords\":[");
+        for (int i = 0; i < paper.getKeywords().size(); i++) {
+            json.append(i > 0 ? "," : "").append(quote(paper.getKeywords().get(i)));
+        }
+        json.append(']');
+        if (withText) {
+            json.append(",\"abstract\":").append(quote(paper.getAbstractText()))
+                    .append(",\"content\":").append(quote(paper.getContent()));
+        }
+        return json.append('}').toString();
+    }
+
+    private static String jsonPapers(List<Paper> papers) {
+        StringJoiner result = new StringJoiner(",", "[", "]");
+        for (Paper paper : papers) {
+            result.add(json(paper, false));
+        }
+        return result.toString();
+    }
+
+    private static String json(Review review) {
+        return "{\"reviewId\":" + quote(review.getReviewId()) + ",\"reviewerName\":" + quote(review.getReviewerName())
+                + ",\"rating\":" + review.getRating() + ",\"comments\":" + quote(review.getComments())
+                + ",\"submissionDate\":" + quote(String.valueOf(review.getSubmissionDate())) + "}";
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder result = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                case '\n' -> result.append("\\n");
+                case '\r' -> result.append("\\r");
+                case '\t' -> result.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        result.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        result.append(c);
+                    }
+                }
+            }
+        }
+        return result.append('"').toString();
+    }
+}
@@ -4,9 +4,13 @@ import model.*;
 import service.*;
 import storage.*;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.*;
 import java.io.Console;
 import java.time.format.DateTimeFormatter;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -15,10 +19,18 @@ import java.util.stream.Collectors;
  * by bringing together all the components of the system.
  */
 public class PeerReviewSystem {
+    // Size a storage log may reach before it is folded into a fresh snapshot
+    private static final long WAL_COMPACTION_BYTES = 4L * 1024 * 1024;
+    // Number of rows shown per page in listings
+    private static final int PAGE_SIZE = 20;
+    // Maximum number of papers offered by a "paper ID or title" search
+    private static final int LOOKUP_LIMIT = 50;
+
     // Services
     private final UserService userService;
     private final PaperService paperService;
     private final ReviewService reviewService;
+    private final CascadeDelete cascadeDelete;
 
     // Current logged-in user
     private User currentUser;
@@ -36,28 +48,42 @@ public class PeerReviewSystem {
      * Constructor - initializes the system
      */
     public PeerReviewSystem() {
-        // Create data storage directory if it doesn't exist
-        File dataDir = new File("data");
-        if (!dataDir.exists()) {
-            dataDir.mkdir();
-        }
+        ensureDataDirectory();
 
-        // Initialize storage
-        DataStorage<User> userStorage = new FileStorage<>("data/users.dat", User.class);
-        DataStorage<Paper> paperStorage = new FileStorage<>("data/papers.dat", Paper.class);
-        DataStorage<Review> reviewStorage = new FileStorage<>("data/reviews.dat", Review.class);
+        // Initialize storage (binary snapshots; each mutation is appended to a log that is
+        // folded into the .dat file periodically)
+        DataStorage<User> userStorage = openStorage("users", User.class, User::getUserId, new UserCodec());
+        DataStorage<Paper> paperStorage = openStorage("papers", Paper.class, Paper::getPaperId, paperCodec());
+        DataStorage<Review> reviewStorage = openStorage("reviews", Review.class, Review::getReviewId, new ReviewCodec());
 
         // Initialize services
         userService = new UserService(userStorage);
         paperService = new PaperService(paperStorage, userService);
         reviewService = new ReviewService(reviewStorage, paperService, userService);
+        cascadeDelete = new CascadeDelete(userService, paperService, reviewService);
 
         // Initialize scanner and console
         scanner = new Scanner(System.in);
         console = System.console();
         dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
-        // Create default admin if none exists
+        ensureDefaultAdmin(userService);
+    }
+
+    /**
+     * Create data storage directory if it doesn't exist
+     */
+    static void ensureDataDirectory() {
+        File dataDir = new File("data");
+        if (!dataDir.exists()) {
+            dataDir.mkdir();
+        }
+    }
+
+    /**
+     * Create default admin if none exists
+     */
+    static void ensureDefaultAdmin(UserService userService) {
         if (userService.getAllAdmins().isEmpty()) {
             userService.registerAdmin("Admin", "admin@scis.edu", "admin123", "System Admin");
             System.out.println("Default admin created: admin@scis.edu / admin123");
@@ -65,9 +91,58 @@ public class PeerReviewSystem {
     }
 
     /**
-     * Main method - program entry point
+     * Create a file-backed storage under the data directory that syncs every change on its own
+     */
+    static <T> DataStorage<T> openStorage(String name, Class<T> typeClass,
+                                                  Function<T, String> idExtractor,
+                                                  EntityCodec<T> codec) {
+        return openStorage(name, typeClass, idExtractor, codec, WriteAheadLog.SyncPolicy.ALWAYS, 1);
+    }
+
+    /**
+     * Create a file-backed storage under the data directory
+     * @param syncPolicy When logged changes are forced to disk
+     * @param syncInterval Records per sync for SyncPolicy.BATCH, or the largest group for SyncPolicy.GROUP
+     */
+    static <T> DataStorage<T> openStorage(String name, Class<T> typeClass,
+                                                  Function<T, String> idExtractor,
+                                                  EntityCodec<T> codec,
+                                                  WriteAheadLog.SyncPolicy syncPolicy,
+                                                  int syncInterval) {
+        WriteAheadLog<T> wal = new WriteAheadLog<>("data/" + name + ".wal", codec,
+                syncPolicy, syncInterval, WAL_COMPACTION_BYTES);
+        return new FileStorage<>("data/" + name + ".dat", typeClass, idExtractor, codec, wal,
+                FileStorage.DEFAULT_GENERATIONS);
+    }
+
+    /**
+     * Paper abstracts and contents stay in a memory-mapped body file and are only
+     * decoded when displayed; falls back to inline text if the file cannot be opened
+     */
+    static EntityCodec<Paper> paperCodec() {
+        try {
+            return new MappedPaperCodec(new PaperBodyFile("data/papers.body"));
+        } catch (IOException e) {
+            System.err.println("Error opening paper body file: " + e.getMessage());
+            return new PaperCodec();
+        }
+    }
+
+    /**
+     * Main method - program entry point.
+     * Run with "--server [port]" to serve many users over HTTP instead of the console menu.
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : PeerReviewServer.DEFAULT_PORT;
+            try {
+                PeerReviewServer.run(port);
+            } catch (IOException e) {
+                System.err.println("Error starting server: " + e.getMessage());
+            }
+            return;
+        }
+
         PeerReviewSystem system = new PeerReviewSystem();
         system.start();
     }
@@ -359,8 +434,14 @@ public class PeerReviewSystem {
             return;
         }
 
-        currentUser.setPassword(newPassword);
-        userService.updateUser(currentUser);
+        if (!userService.updateUser(currentUser.getUserId(), user -> {
+            user.setPassword(newPassword);
+            return true;
+        })) {
+            System.out.println("Failed to change password. Please try again.");
+            return;
+        }
+        currentUser = userService.findUserById(currentUser.getUserId()).orElse(currentUser);
         System.out.println("Password changed successfully.");
     }
 
@@ -593,6 +674,8 @@ public class PeerReviewSystem {
             System.out.println("2. View User Details");
             System.out.println("3. Delete User");
             System.out.println("4. Create Admin User");
+            System.out.println("5. Bulk Import");
+            System.out.println("6. Reassign Reviewer");
             System.out.println("0. Back");
 
             System.out.print("Enter your choice: ");
@@ -611,6 +694,12 @@ public class PeerReviewSystem {
                 case "4":
                     createAdminUser();
                     break;
+                case "5":
+                    bulkImport();
+                    break;
+                case "6":
+                    reassignReviewer();
+                    break;
                 case "0":
                     back = true;
                     break;
@@ -625,12 +714,25 @@ public class PeerReviewSystem {
      */
     private void listAllUsers() {
         System.out.println("\n----- All Users -----");
-        List<User> users = userService.getAllUsers();
+        String cursor = null;
+        int shown = 0;
+
+        do {
+            Page<User> page = userService.getUsersPage(cursor, PAGE_SIZE);
+            for (User user : page.items()) {
+                shown++;
+                System.out.println(shown + ". " + user.getName() + " (" + user.getRole() + ") - " + user.getEmail());
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null && askNextPage());
+    }
 
-        for (int i = 0; i < users.size(); i++) {
-            User user = users.get(i);
-            System.out.println((i + 1) + ". " + user.getName() + " (" + user.getRole() + ") - " + user.getEmail());
-        }
+    /**
+     * Ask whether to show the next page of a listing
+     */
+    private boolean askNextPage() {
+        System.out.print("Press Enter for more, or 0 to stop: ");
+        return !scanner.nextLine().trim().equals("0");
     }
 
     /**
@@ -691,11 +793,14 @@ public class PeerReviewSystem {
                 return;
             }
 
+            cascadeDelete.deleteUser(user.getUserId(), true).ifPresent(this::printCascade);
             System.out.println("Are you sure you want to delete user " + user.getName() + "? (y/n)");
             String confirm = scanner.nextLine();
 
             if (confirm.equalsIgnoreCase("y")) {
-                boolean success = userService.deleteUser(user.getUserId());
+                boolean success = cascadeDelete.deleteUser(user.getUserId(), false)
+                        .map(CascadeDelete.Report::applied)
+                        .orElse(false);
 
                 if (success) {
                     System.out.println("User deleted successfully.");
@@ -708,6 +813,24 @@ public class PeerReviewSystem {
         }
     }
 
+    /**
+     * Show what else a delete will remove or change, from a dry run
+     */
+    private void printCascade(CascadeDelete.Report report) {
+        if (!report.papers().isEmpty()) {
+            System.out.println("Papers to delete: " + report.papers().size());
+            for (Paper paper : report.papers()) {
+                System.out.println("- " + paper.getTitle());
+            }
+        }
+        if (!report.reviews().isEmpty()) {
+            System.out.println("Reviews to delete: " + report.reviews().size());
+        }
+        if (!report.detachedPapers().isEmpty()) {
+            System.out.println("Papers to remove the reviewer from: " + report.detachedPapers().size());
+        }
+    }
+
     /**
      * Create admin user functionality (Admin only)
      */
@@ -730,6 +853,76 @@ public class PeerReviewSystem {
         }
     }
 
+    /**
+     * Bulk import functionality (Admin only)
+     */
+    private void bulkImport() {
+        System.out.println("\n----- Bulk Import -----");
+        System.out.println("CSV (with a header row) or JSONL; each row has a type:");
+        System.out.println("  student    - name, email, password, department, studentId");
+        System.out.println("  faculty    - name, email, password, department, position");
+        System.out.println("  paper      - title, abstract, content, author, keywords, reviewers");
+        System.out.println("  assignment - paperId, reviewer");
+        System.out.print("File path: ");
+        String path = scanner.nextLine().trim();
+
+        BulkImporter.Report report;
+        try {
+            report = new BulkImporter(userService, paperService).importFile(Path.of(path));
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Import failed: " + e.getMessage());
+            return;
+        }
+
+        System.out.printf("Read %d rows in %.2f s (%.0f rows/s)%n", report.rows(),
+                report.elapsedNanos() / 1e9, report.rowsPerSecond());
+        System.out.println("Imported " + report.users() + " users, " + report.papers() + " papers and "
+                + report.assignments() + " reviewer assignments.");
+
+        if (!report.rejected().isEmpty()) {
+            System.out.println(report.rejected().size() + " rows rejected:");
+            for (BulkImporter.Rejection rejection : report.rejected().subList(0,
+                    Math.min(PAGE_SIZE, report.rejected().size()))) {
+                System.out.println("  Line " + rejection.line() + ": " + rejection.reason());
+            }
+            if (report.rejected().size() > PAGE_SIZE) {
+                System.out.println("  ... and " + (report.rejected().size() - PAGE_SIZE) + " more");
+            }
+        }
+    }
+
+    /**
+     * Move all of one reviewer's assignments to another reviewer (Admin only)
+     */
+    private void reassignReviewer() {
+        System.out.println("\n----- Reassign Reviewer -----");
+        System.out.print("Current reviewer email: ");
+        Optional<User> fromOpt = userService.findUserByEmail(scanner.nextLine());
+        if (fromOpt.isEmpty()) {
+            System.out.println("User not found.");
+            return;
+        }
+
+        int count = paperService.getPapersForReviewer(fromOpt.get().getUserId()).size();
+        if (count == 0) {
+            System.out.println(fromOpt.get().getName() + " has no assigned papers.");
+            return;
+        }
+
+        System.out.print("New reviewer email: ");
+        Optional<User> toOpt = userService.findUserByEmail(scanner.nextLine());
+        if (toOpt.isEmpty() || !(toOpt.get() instanceof Faculty || toOpt.get() instanceof Student)) {
+            System.out.println("Reviewer not found.");
+            return;
+        }
+
+        if (paperService.reassignReviewer(fromOpt.get().getUserId(), toOpt.get().getUserId())) {
+            System.out.println(count + " paper(s) reassigned to " + toOpt.get().getName() + ".");
+        } else {
+            System.out.println("Failed to reassign papers.");
+        }
+    }
+
     /**
      * Manage papers functionality (Admin only)
      */
@@ -779,39 +972,66 @@ public class PeerReviewSystem {
      */
     private void listAllPapers() {
         System.out.println("\n----- All Papers -----");
-        List<Paper> papers = paperService.getAllPapers();
-
-        if (papers.isEmpty()) {
-            System.out.println("No papers found in the system.");
-            return;
+        Map<ReviewStatus, Integer> counts = paperService.getStatusCounts();
+        StringJoiner summary = new StringJoiner(", ");
+        for (Map.Entry<ReviewStatus, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 0) {
+                summary.add(entry.getKey() + ": " + entry.getValue());
+            }
+        }
+        if (summary.length() > 0) {
+            System.out.println("By status: " + summary);
         }
 
-        for (int i = 0; i < papers.size(); i++) {
-            Paper paper = papers.get(i);
-            String authorName = userService.findUserById(paper.getAuthorId())
-                    .map(User::getName)
-                    .orElse("Unknown");
+        System.out.print("Sort by (1) title or (2) submission date: ");
+        String sortKey = scanner.nextLine().trim().equals("2")
+                ? PaperService.SORT_BY_SUBMISSION_DATE
+                : PaperService.SORT_BY_TITLE;
 
-            System.out.println((i + 1) + ". " + paper.getTitle() + " (Author: " + authorName + ", Status: " + paper.getStatus() + ")");
-        }
+        String cursor = null;
+        int shown = 0;
+
+        do {
+            Page<Paper> page = paperService.getPapersPage(cursor, PAGE_SIZE, sortKey);
+            if (page.isEmpty() && shown == 0) {
+                System.out.println("No papers found in the system.");
+                return;
+            }
+
+            for (Paper paper : page.items()) {
+                String authorName = userService.findUserById(paper.getAuthorId())
+                        .map(User::getName)
+                        .orElse("Unknown");
+
+                shown++;
+                System.out.println(shown + ". " + paper.getTitle() + " (Author: " + authorName + ", Status: " + paper.getStatus() + ")");
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null && askNextPage());
     }
 
     /**
-     * View paper details functionality (Admin only)
+     * Ask for a paper ID or title and find the matching papers (Admin only)
+     * @return Matching papers, empty if nothing matched
      */
-    private void viewPaperDetailsAdmin() {
-        System.out.println("\n----- View Paper Details -----");
+    private List<Paper> promptPaperLookup() {
         System.out.print("Enter paper ID or title: ");
         String search = scanner.nextLine();
 
-        // Search papers by ID or title
-        List<Paper> matchingPapers = paperService.getAllPapers().stream()
-                .filter(p -> p.getPaperId().equalsIgnoreCase(search) ||
-                        p.getTitle().toLowerCase().contains(search.toLowerCase()))
-                .collect(Collectors.toList());
-
+        List<Paper> matchingPapers = paperService.lookup(search, LOOKUP_LIMIT);
         if (matchingPapers.isEmpty()) {
             System.out.println("No papers found matching your search.");
+        }
+        return matchingPapers;
+    }
+
+    /**
+     * View paper details functionality (Admin only)
+     */
+    private void viewPaperDetailsAdmin() {
+        System.out.println("\n----- View Paper Details -----");
+        List<Paper> matchingPapers = promptPaperLookup();
+        if (matchingPapers.isEmpty()) {
             return;
         }
 
@@ -846,17 +1066,8 @@ public class PeerReviewSystem {
      */
     private void changePaperStatus() {
         System.out.println("\n----- Change Paper Status -----");
-        System.out.print("Enter paper ID or title: ");
-        String search = scanner.nextLine();
-
-        // Search papers by ID or title
-        List<Paper> matchingPapers = paperService.getAllPapers().stream()
-                .filter(p -> p.getPaperId().equalsIgnoreCase(search) ||
-                        p.getTitle().toLowerCase().contains(search.toLowerCase()))
-                .collect(Collectors.toList());
-
+        List<Paper> matchingPapers = promptPaperLookup();
         if (matchingPapers.isEmpty()) {
-            System.out.println("No papers found matching your search.");
             return;
         }
 
@@ -921,17 +1132,8 @@ public class PeerReviewSystem {
      */
     private void deletePaper() {
         System.out.println("\n----- Delete Paper -----");
-        System.out.print("Enter paper ID or title: ");
-        String search = scanner.nextLine();
-
-        // Search papers by ID or title
-        List<Paper> matchingPapers = paperService.getAllPapers().stream()
-                .filter(p -> p.getPaperId().equalsIgnoreCase(search) ||
-                        p.getTitle().toLowerCase().contains(search.toLowerCase()))
-                .collect(Collectors.toList());
-
+        List<Paper> matchingPapers = promptPaperLookup();
         if (matchingPapers.isEmpty()) {
-            System.out.println("No papers found matching your search.");
             return;
         }
 
@@ -953,11 +1155,14 @@ public class PeerReviewSystem {
             if (index >= 0 && index < matchingPapers.size()) {
                 Paper paper = matchingPapers.get(index);
 
+                cascadeDelete.deletePaper(paper.getPaperId(), true).ifPresent(this::printCascade);
                 System.out.println("Are you sure you want to delete paper \"" + paper.getTitle() + "\"? (y/n)");
                 String confirm = scanner.nextLine();
 
                 if (confirm.equalsIgnoreCase("y")) {
-                    boolean success = paperService.deletePaper(paper.getPaperId());
+                    boolean success = cascadeDelete.deletePaper(paper.getPaperId(), false)
+                            .map(CascadeDelete.Report::applied)
+                            .orElse(false);
 
                     if (success) {
                         System.out.println("Paper deleted successfully.");
@@ -985,11 +1190,7 @@ public class PeerReviewSystem {
         System.out.println("\n----- Assign Reviewers -----");
 
         // Get papers that can be assigned for review
-        List<Paper> papers = paperService.getAllPapers()
-                .stream()
-                .filter(p -> p.getStatus() == ReviewStatus.PENDING)
-                .sorted(Comparator.comparing(Paper::getTitle))
-                .collect(Collectors.toList());
+        List<Paper> papers = paperService.getPapersByStatus(ReviewStatus.PENDING);
 
         if (papers.isEmpty()) {
             System.out.println("No papers available for review assignment.");
@@ -1107,17 +1308,8 @@ public class PeerReviewSystem {
         }
 
         System.out.println("\n----- View Reviews -----");
-        System.out.print("Enter paper ID or title: ");
-        String search = scanner.nextLine();
-
-        // Search papers by ID or title
-        List<Paper> matchingPapers = paperService.getAllPapers().stream()
-                .filter(p -> p.getPaperId().equalsIgnoreCase(search) ||
-                        p.getTitle().toLowerCase().contains(search.toLowerCase()))
-                .collect(Collectors.toList());
-
+        List<Paper> matchingPapers = promptPaperLookup();
         if (matchingPapers.isEmpty()) {
-            System.out.println("No papers found matching your search.");
             return;
         }
 
@@ -0,0 +1,131 @@
+package main;
+
+import model.*;
+import service.*;
+import storage.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Allocation harness for the read paths that stopped copying on every call.
+ * Seeds a PaperService on ConcurrentDataStorage, then measures the bytes allocated by the
+ * calling thread (com.sun.management.ThreadMXBean) and the time per call for:
+ *   getPapersForReviewer  - reviewer's papers as blinded copies
+ *   searchPapersByKeyword - papers with a keyword containing the query
+ * Each is run "before" (the copies the old code made per call: findAll() copying the table,
+ * getKeywords()/getReviewerIds() copying their lists, the query lowercased per keyword) and
+ * "after" (the current service method).
+ *
+ * Usage: ReadAllocationTest [papers] [calls per measurement]
+ */
+public class ReadAllocationTest {
+    private static final int REVIEWERS = 100;
+    private static final int WARMUP_CALLS = 2_000;
+    private static final String REVIEWER_INDEX = "allocation-test-reviewer";
+    private static final String[] KEYWORDS = {"Machine Learning", "Distributed Systems", "Databases",
+            "Computer Vision", "Networking", "Security", "Compilers", "Graphics"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int paperCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            System.err.println("Per-thread allocation counting is not supported by this JVM");
+            return;
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        DataStorage<Paper> storage = new ConcurrentDataStorage<>(Paper::getPaperId);
+        UserService userService = new UserService(new ConcurrentDataStorage<>(User::getUserId));
+        PaperService paperService = new PaperService(storage, userService);
+        storage.createIndex(REVIEWER_INDEX, Paper::getReviewerIds);
+        List<String> reviewerIds = seed(userService, paperService, paperCount);
+
+        String reviewerId = reviewerIds.get(0);
+        String keyword = "learn";
+
+        System.out.printf("%d papers, %d calls per measurement%n", paperCount, calls);
+        System.out.printf("%-22s %-7s %10s %12s %10s%n", "operation", "variant", "results", "bytes/call", "us/call");
+        measure("getPapersForReviewer", "before", calls, () -> papersForReviewerBefore(storage, reviewerId));
+        measure("getPapersForReviewer", "after", calls, () -> paperService.getPapersForReviewer(reviewerId));
+        measure("searchPapersByKeyword", "before", calls, () -> searchByKeywordBefore(storage, keyword));
+        measure("searchPapersByKeyword", "after", calls, () -> paperService.searchPapersByKeyword(keyword));
+    }
+
+    private static void measure(String operation, String variant, int calls, Supplier<List<Paper>> call) {
+        int results = 0;
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            results = call.get().size();
+        }
+
+        long thread = Thread.currentThread().threadId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            results = call.get().size();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(thread) - bytesBefore;
+
+        System.out.printf("%-22s %-7s %10d %12d %10.1f%n", operation, variant, results,
+                bytes / calls, elapsed / 1e3 / calls);
+    }
+
+    /**
+     * getPapersForReviewer as it was: the blinded copy copied both lists through their getters,
+     * and the constructor copied them again
+     */
+    private static List<Paper> papersForReviewerBefore(DataStorage<Paper> storage, String reviewerId) {
+        return storage.findByIndex(REVIEWER_INDEX, reviewerId).stream()
+                .map(paper -> new Paper(paper.getPaperId(), paper.getTitle(), paper.getAbstractText(),
+                        paper.getContent(), "ANONYMOUS", "ANONYMOUS", paper.getSubmissionDate(),
+                        new ArrayList<>(paper.getKeywords()), new ArrayList<>(paper.getReviewerIds()),
+                        paper.getStatus()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * searchPapersByKeyword as it was: findAll() copied the table, getKeywords() copied each
+     * paper's list and the query was lowercased once per keyword
+     */
+    private static List<Paper> searchByKeywordBefore(DataStorage<Paper> storage, String keyword) {
+        return new ArrayList<>(storage.findAll()).stream()
+                .filter(paper -> new ArrayList<>(paper.getKeywords()).stream()
+                        .anyMatch(k -> k.toLowerCase().contains(keyword.toLowerCase())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Faculty reviewers and papers with one or two keywords, each assigned to one reviewer
+     * @return IDs of the reviewers
+     */
+    private static List<String> seed(UserService userService, PaperService paperService, int paperCount) {
+        Student author = new Student("Author", "author@alloc.test", "password", "CS", "S0");
+        List<User> users = new ArrayList<>(List.of(author));
+        for (int r = 0; r < REVIEWERS; r++) {
+            users.add(new Faculty("Reviewer " + r, "reviewer" + r + "@alloc.test", "password", "CS", "Professor"));
+        }
+        userService.registerAll(users);
+        List<String> reviewerIds = users.subList(1, users.size()).stream().map(User::getUserId).toList();
+
+        Random random = new Random(42);
+        List<Paper> papers = new ArrayList<>(paperCount);
+        for (int i = 0; i < paperCount; i++) {
+            List<String> keywords = random.nextBoolean()
+                    ? List.of(KEYWORDS[random.nextInt(KEYWORDS.length)])
+                    : List.of(KEYWORDS[random.nextInt(KEYWORDS.length)], KEYWORDS[random.nextInt(KEYWORDS.length)]);
+            Paper paper = new Paper("Paper " + i, "Abstract of paper " + i, "Content of paper " + i,
+                    author.getUserId(), author.getName(), keywords);
+            paper.assignReviewer(reviewerIds.get(i % REVIEWERS));
+            paper.setStatus(ReviewStatus.IN_PROGRESS);
+            papers.add(paper);
+        }
+        paperService.submitAll(papers);
+        return reviewerIds;
+    }
+}
@@ -0,0 +1,220 @@
+package main;
+
+import model.*;
+import service.*;
+import storage.*;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load-test harness for PeerReviewServer.
+ * Starts a server on in-memory storage, seeds it with faculty reviewers and assigned papers,
+ * then runs an increasing number of concurrent reviewer sessions against it. Each session
+ * logs in and repeatedly lists its assigned papers, opens one, runs a search and now and then
+ * submits a review. Prints requests/sec and p50/p99 latency for each concurrency level.
+ *
+ * Usage: ServerLoadTest [seconds per level] [comma-separated session counts]
+ */
+public class ServerLoadTest {
+    private static final int PAPERS_PER_REVIEWER = 5;
+    private static final String PASSWORD = "password";
+    private static final String[] SEARCH_TERMS = {"learning", "systems", "review", "network", "data"};
+
+    private final String baseUrl;
+    private final HttpClient client;
+
+    private ServerLoadTest(int port) {
+        this.baseUrl = "http://localhost:" + port;
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int[] levels = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 8, 32, 128, 256};
+        int maxSessions = Arrays.stream(levels).max().orElse(1);
+
+        UserService userService = new UserService(new ConcurrentDataStorage<>(User::getUserId));
+        PaperService paperService = new PaperService(new ConcurrentDataStorage<>(Paper::getPaperId), userService);
+        ReviewService reviewService = new ReviewService(new ConcurrentDataStorage<>(Review::getReviewId),
+                paperService, userService);
+        seed(userService, paperService, maxSessions);
+
+        PeerReviewServer server = new PeerReviewServer(userService, paperService, reviewService);
+        server.start(0);
+        try {
+            ServerLoadTest test = new ServerLoadTest(server.getPort());
+            System.out.printf("%8s %10s %10s %10s %10s%n", "sessions", "requests", "req/s", "p50 ms", "p99 ms");
+            for (int sessions : levels) {
+                test.runLevel(sessions, seconds * 1000L);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * One faculty reviewer per session, each assigned papers by a student author.
+     * Users and papers are each stored with one batch write.
+     */
+    private static void seed(UserService userService, PaperService paperService, int reviewers) {
+        Student author = new Student("Author", "author@load.test", PASSWORD, "CS", "S0");
+        List<User> users = new ArrayList<>(List.of(author));
+        for (int r = 0; r < reviewers; r++) {
+            users.add(new Faculty("Reviewer " + r, reviewerEmail(r), PASSWORD, "CS", "Professor"));
+        }
+        userService.registerAll(users);
+
+        Random random = new Random(42);
+        List<Paper> papers = new ArrayList<>();
+        for (int r = 0; r < reviewers; r++) {
+            String reviewerId = users.get(r + 1).getUserId();
+            for (int p = 0; p < PAPERS_PER_REVIEWER; p++) {
+                String title = "Paper " + r + "-" + p + " on " + SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)];
+                Paper paper = new Paper(title, "Abstract about " + SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)],
+                        "Content", author.getUserId(), author.getName(),
+                        List.of(SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)]));
+                paper.assignReviewer(reviewerId);
+                paper.setStatus(ReviewStatus.IN_PROGRESS);
+                papers.add(paper);
+            }
+        }
+        paperService.submitAll(papers);
+    }
+
+    private static String reviewerEmail(int index) {
+        return "reviewer" + index + "@load.test";
+    }
+
+    private void runLevel(int sessions, long durationMillis) throws Exception {
+        long deadline = System.currentTimeMillis() + durationMillis;
+        long start = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int s = 0; s < sessions; s++) {
+                int reviewer = s;
+                results.add(executor.submit(() -> runSession(reviewer, deadline)));
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        int total = 0;
+        for (Future<long[]> result : results) {
+            total += result.get().length;
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (Future<long[]> result : results) {
+            long[] session = result.get();
+            System.arraycopy(session, 0, latencies, offset, session.length);
+            offset += session.length;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%8d %10d %10.0f %10.2f %10.2f%n", sessions, total, total / elapsedSeconds,
+                percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    /**
+     * Run one reviewer session until the deadline
+     * @return Latency of every request in nanoseconds
+     */
+    private long[] runSession(int reviewer, long deadline) throws Exception {
+        long[] latencies = new long[1024];
+        int count = 0;
+        Random random = new Random(reviewer);
+
+        String login = send("POST", "/login", null,
+                form("email", reviewerEmail(reviewer), "password", PASSWORD));
+        String token = field(login, "token");
+
+        while (System.currentTimeMillis() < deadline) {
+            long[] requestLatencies = new long[4];
+            long t0 = System.nanoTime();
+            String assigned = send("GET", "/papers/assigned", token, null);
+            long t1 = System.nanoTime();
+            String paperId = field(assigned, "paperId");
+            send("GET", "/paper?id=" + encode(paperId), token, null);
+            long t2 = System.nanoTime();
+            send("GET", "/papers/search?limit=10&q=" + SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)], token, null);
+            long t3 = System.nanoTime();
+            requestLatencies[0] = t1 - t0;
+            requestLatencies[1] = t2 - t1;
+            requestLatencies[2] = t3 - t2;
+            int n = 3;
+
+            if (random.nextInt(20) == 0) {
+                // Rejected after the first time per paper, which still exercises the write path
+                send("POST", "/reviews", token, form("paperId", paperId,
+                        "rating", String.valueOf(1 + random.nextInt(5)), "comments", "Load test review"));
+                requestLatencies[n++] = System.nanoTime() - t3;
+            }
+
+            if (count + n > latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            System.arraycopy(requestLatencies, 0, latencies, count, n);
+            count += n;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private String send(String method, String path, String token, String form) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        if (form != null) {
+            request.header("Content-Type", "application/x-www-form-urlencoded")
+                    .method(method, HttpRequest.BodyPublishers.ofString(form));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static String form(String... pairs) {
+        StringJoiner result = new StringJoiner("&");
+        for (int i = 0; i < pairs.length; i += 2) {
+            result.add(encode(pairs[i]) + "=" + encode(pairs[i + 1]));
+        }
+        return result.toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * First string value of a field in a JSON response; enough for the responses used here
+     */
+    private static String field(String json, String name) {
+        String marker = "\"" + name + "\":\"";
+        int start = json.indexOf(marker);
+        if (start < 0) {
+            throw new IllegalStateException("No " + name + " in response: " + json);
+        }
+        start += marker.length();
+        return json.substring(start, json.indexOf('"', start));
+    }
+}
@@ -0,0 +1,88 @@
+package main;
+
+import model.*;
+import storage.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput harness for the write-ahead log sync policies.
+ * For each policy, a number of threads submit papers concurrently to a FileStorage in a
+ * temporary directory for a fixed time. Prints operations/sec and how many log records
+ * each fsync made durable:
+ *   ALWAYS - one fsync per change, the caller waits for it
+ *   GROUP  - concurrent changes share one fsync, each caller waits for its group
+ *   NEVER  - no fsync, the operating system writes the log back when it likes
+ *
+ * Usage: WriteThroughputTest [seconds per policy] [comma-separated thread counts]
+ */
+public class WriteThroughputTest {
+    private static final int MAX_GROUP_SIZE = 256;
+    private static final long COMPACTION_BYTES = Long.MAX_VALUE;  // keep snapshots out of the measurement
+    private static final WriteAheadLog.SyncPolicy[] POLICIES = {
+            WriteAheadLog.SyncPolicy.ALWAYS, WriteAheadLog.SyncPolicy.GROUP, WriteAheadLog.SyncPolicy.NEVER
+    };
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int[] threadCounts = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 8, 64};
+
+        System.out.printf("%-7s %8s %10s %10s %12s%n", "policy", "threads", "ops", "ops/s", "records/sync");
+        for (int threads : threadCounts) {
+            for (WriteAheadLog.SyncPolicy policy : POLICIES) {
+                run(policy, threads, seconds * 1000L);
+            }
+        }
+    }
+
+    private static void run(WriteAheadLog.SyncPolicy policy, int threads, long durationMillis) throws Exception {
+        Path dir = Files.createTempDirectory("wal-throughput");
+        try {
+            WriteAheadLog<Paper> wal = new WriteAheadLog<>(dir.resolve("papers.wal").toString(), new PaperCodec(),
+                    policy, MAX_GROUP_SIZE, COMPACTION_BYTES);
+            FileStorage<Paper> storage = new FileStorage<>(dir.resolve("papers.dat").toString(), Paper.class,
+                    Paper::getPaperId, new PaperCodec(), wal, FileStorage.DEFAULT_GENERATIONS);
+
+            AtomicLong ops = new AtomicLong();
+            long deadline = System.currentTimeMillis() + durationMillis;
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+                for (int t = 0; t < threads; t++) {
+                    executor.submit(() -> {
+                        while (System.currentTimeMillis() < deadline) {
+                            Paper paper = new Paper("Throughput test paper", "Abstract", "Content",
+                                    "author", "Author", List.of("test"));
+                            if (storage.save(paper)) {
+                                ops.incrementAndGet();
+                            }
+                        }
+                    });
+                }
+            }
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+            WriteAheadLog.SyncStats stats = wal.getSyncStats();
+            System.out.printf("%-7s %8d %10d %10.0f %12s%n", policy, threads, ops.get(), ops.get() / elapsedSeconds,
+                    stats.syncs() == 0 ? "-" : String.format("%.1f", stats.recordsPerSync()));
+            wal.close();
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -22,6 +22,16 @@ public class Admin extends User {
         this.isAdmin = true;
     }
 
+    /**
+     * Constructor for loading an Admin from storage
+     */
+    public Admin(String userId, String name, String email, String password,
+                 String adminLevel, boolean isAdmin) {
+        super(userId, name, email, password);
+        this.adminLevel = adminLevel;
+        this.isAdmin = isAdmin;
+    }
+
     public String getAdminLevel() {
         return adminLevel;
     }
@@ -43,6 +53,13 @@ public class Admin extends User {
         return "Admin";
     }
 
+    @Override
+    public Admin copy() {
+        Admin copy = new Admin(getUserId(), getName(), getEmail(), getPassword(), adminLevel, isAdmin);
+        copy.setVersion(getVersion());
+        return copy;
+    }
+
     @Override
     public String toString() {
         return STR."Admin{userId='\{getUserId()}', name='\{getName()}', email='\{getEmail()}', adminLevel='\{adminLevel}'}";
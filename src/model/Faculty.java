@@ -63,6 +63,13 @@ public class Faculty extends User {
         return "Faculty" + (isReviewer ? ", Reviewer" : "");
     }
 
+    @Override
+    public Faculty copy() {
+        Faculty copy = new Faculty(getUserId(), getName(), getEmail(), getPassword(), department, position, isReviewer);
+        copy.setVersion(getVersion());
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Faculty{" +
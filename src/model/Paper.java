@@ -1,17 +1,21 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * Class representing a research paper in the system.
  * Demonstrates encapsulation by protecting its internal state.
  */
-public class Paper implements Serializable {
+public class Paper implements Serializable, Versioned {
     @Serial
     private static final long serialVersionUID = 1L;
 
@@ -19,12 +23,27 @@ public class Paper implements Serializable {
     private String title;
     private String abstractText;
     private String content;
+    // When set, the abstract/content live outside the heap and are read on each call
+    private transient Supplier<String> abstractSource;
+    private transient Supplier<String> contentSource;
     private final String authorId;  // ID of the user who submitted the paper
     private final String authorName;  // Name of the author (for display purposes)
     private final LocalDateTime submissionDate;
+    // Both lists are immutable and replaced on change, so getters can hand them out without copying
     private List<String> keywords;
-    private final List<String> reviewerIds;  // IDs of users assigned to review this paper
+    private List<String> reviewerIds;  // IDs of users assigned to review this paper
     private ReviewStatus status;
+    private transient long version;
+    // Built on first request and shared by repeated requests until a setter bumps changeCount
+    private transient volatile BlindedCopy blindedCopy;
+    private transient volatile int changeCount;
+    private transient boolean blinded;  // true for the shared, read-only blinded copies
+
+    /**
+     * A memoized blinded copy and the changeCount it was built at
+     */
+    private record BlindedCopy(Paper paper, int changeCount) {
+    }
 
     /**
      * Constructor for creating a new paper
@@ -38,8 +57,8 @@ public class Paper implements Serializable {
         this.authorId = authorId;
         this.authorName = authorName;
         this.submissionDate = LocalDateTime.now();
-        this.keywords = keywords != null ? keywords : new ArrayList<>();
-        this.reviewerIds = new ArrayList<>();
+        this.keywords = immutableCopy(keywords);
+        this.reviewerIds = List.of();
         this.status = ReviewStatus.PENDING;
     }
 
@@ -56,11 +75,22 @@ public class Paper implements Serializable {
         this.authorId = authorId;
         this.authorName = authorName;
         this.submissionDate = submissionDate;
-        this.keywords = keywords != null ? keywords : new ArrayList<>();
-        this.reviewerIds = reviewerIds != null ? reviewerIds : new ArrayList<>();
+        this.keywords = immutableCopy(keywords);
+        this.reviewerIds = immutableCopy(reviewerIds);
         this.status = status;
     }
 
+    /**
+     * Constructor for loading a paper whose abstract and content are read on demand
+     */
+    public Paper(String paperId, String title, Supplier<String> abstractSource, Supplier<String> contentSource,
+                 String authorId, String authorName, LocalDateTime submissionDate,
+                 List<String> keywords, List<String> reviewerIds, ReviewStatus status) {
+        this(paperId, title, (String) null, (String) null, authorId, authorName, submissionDate, keywords, reviewerIds, status);
+        this.abstractSource = abstractSource;
+        this.contentSource = contentSource;
+    }
+
     // Getters and setters
     public String getPaperId() {
         return paperId;
@@ -71,23 +101,46 @@ public class Paper implements Serializable {
     }
 
     public void setTitle(String title) {
+        beforeChange();
         this.title = title;
+        changed();
     }
 
     public String getAbstractText() {
-        return abstractText;
+        return abstractSource != null ? abstractSource.get() : abstractText;
     }
 
     public void setAbstractText(String abstractText) {
+        beforeChange();
         this.abstractText = abstractText;
+        this.abstractSource = null;
+        changed();
     }
 
     public String getContent() {
-        return content;
+        return contentSource != null ? contentSource.get() : content;
     }
 
     public void setContent(String content) {
+        beforeChange();
         this.content = content;
+        this.contentSource = null;
+        changed();
+    }
+
+    /**
+     * Where the abstract is read from, or null if it is held on the heap.
+     * Lets storage re-use text that is already on disk instead of writing it again.
+     */
+    public Supplier<String> getAbstractSource() {
+        return abstractSource;
+    }
+
+    /**
+     * Where the content is read from, or null if it is held on the heap
+     */
+    public Supplier<String> getContentSource() {
+        return contentSource;
     }
 
     public String getAuthorId() {
@@ -103,25 +156,56 @@ public class Paper implements Serializable {
     }
 
     public List<String> getKeywords() {
-        return new ArrayList<>(keywords);  // Return a copy to prevent external modification
+        return keywords;  // Immutable, safe to share
     }
 
     public void setKeywords(List<String> keywords) {
-        this.keywords = new ArrayList<>(keywords);
+        beforeChange();
+        this.keywords = immutableCopy(keywords);
+        changed();
     }
 
     public List<String> getReviewerIds() {
-        return new ArrayList<>(reviewerIds);  // Return a copy to prevent external modification
+        return reviewerIds;  // Immutable, safe to share
+    }
+
+    /**
+     * Check whether a user is assigned to review this paper, without copying the reviewer list
+     */
+    public boolean hasReviewer(String reviewerId) {
+        return reviewerIds.contains(reviewerId);
     }
 
     public void assignReviewer(String reviewerId) {
         if (!reviewerIds.contains(reviewerId) && !reviewerId.equals(authorId)) {
-            reviewerIds.add(reviewerId);
+            beforeChange();
+            List<String> updated = new ArrayList<>(reviewerIds);
+            updated.add(reviewerId);
+            reviewerIds = List.copyOf(updated);
+            changed();
         }
     }
 
     public void removeReviewer(String reviewerId) {
-        reviewerIds.remove(reviewerId);
+        if (reviewerIds.contains(reviewerId)) {
+            beforeChange();
+            List<String> updated = new ArrayList<>(reviewerIds);
+            updated.remove(reviewerId);
+            reviewerIds = List.copyOf(updated);
+            changed();
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        // The version is not part of the blinded copy, so the memo stays valid
+        beforeChange();
+        this.version = version;
     }
 
     public ReviewStatus getStatus() {
@@ -129,16 +213,125 @@ public class Paper implements Serializable {
     }
 
     public void setStatus(ReviewStatus status) {
+        beforeChange();
         this.status = status;
+        changed();
+    }
+
+    /**
+     * Get an independent copy of the paper (same ID and version) that can be modified
+     * and written back with compareAndUpdate without touching the stored instance
+     */
+    public Paper copy() {
+        Paper copy = new Paper(
+                paperId, title, abstractText, content,
+                authorId, authorName, submissionDate,
+                keywords, reviewerIds, status
+        );
+        copy.abstractSource = abstractSource;
+        copy.contentSource = contentSource;
+        copy.version = version;
+        return copy;
     }
 
     /**
-     * Get a blinded version of the paper for review purposes (hides author information)
+     * Get a blinded version of the paper for review purposes (hides author information).
+     * The copy is read-only and shared by every caller until this paper is modified.
      */
     public Paper getBlindedCopy() {
+        if (blinded) {
+            return this;
+        }
+        // Read the count first: a change that lands while the copy is built bumps it,
+        // so a copy built from half-old state is never returned from the memo
+        int count = changeCount;
+        BlindedCopy memo = blindedCopy;
+        if (memo == null || memo.changeCount() != count) {
+            memo = new BlindedCopy(createBlindedCopy(), count);
+            blindedCopy = memo;
+        }
+        return memo.paper();
+    }
+
+    private Paper createBlindedCopy() {
+        Paper copy;
+        if (abstractSource != null || contentSource != null) {
+            String abstractCopy = abstractText;
+            String contentCopy = content;
+            copy = new Paper(
+                    paperId, title, abstractSource != null ? abstractSource : () -> abstractCopy,
+                    contentSource != null ? contentSource : () -> contentCopy,
+                    "ANONYMOUS", "ANONYMOUS", submissionDate,
+                    keywords, reviewerIds, status
+            );
+        } else {
+            copy = new Paper(
+                    paperId, title, abstractText, content,
+                    "ANONYMOUS", "ANONYMOUS", submissionDate,
+                    keywords, reviewerIds, status
+            );
+        }
+        copy.blinded = true;
+        return copy;
+    }
+
+    /**
+     * Called by every mutator before the change: shared blinded copies may not change
+     */
+    private void beforeChange() {
+        if (blinded) {
+            throw new UnsupportedOperationException("Blinded copies are read-only");
+        }
+    }
+
+    /**
+     * Called by every mutator after the change, so the memoized blinded copy is rebuilt
+     */
+    private void changed() {
+        changeCount++;
+        blindedCopy = null;
+    }
+
+    /**
+     * List.copyOf returns lists that are already immutable as they are, so copies of a paper share them.
+     * Null elements, which List.copyOf rejects, are dropped: lists decoded from storage or
+     * deserialized from old files may contain them.
+     */
+    private static List<String> immutableCopy(List<String> values) {
+        if (values == null) {
+            return List.of();
+        }
+        for (String value : values) {
+            if (value == null) {
+                List<String> present = new ArrayList<>(values);
+                present.removeIf(Objects::isNull);
+                return List.copyOf(present);
+            }
+        }
+        return List.copyOf(values);
+    }
+
+    /**
+     * Papers saved before the lists became immutable deserialize with plain ArrayLists
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        keywords = immutableCopy(keywords);
+        reviewerIds = immutableCopy(reviewerIds);
+    }
+
+    /**
+     * Java serialization cannot follow the on-demand text, so write a fully loaded copy instead
+     */
+    @Serial
+    private Object writeReplace() {
+        if (abstractSource == null && contentSource == null) {
+            return this;
+        }
         return new Paper(
-                paperId, title, abstractText, content,
-                "ANONYMOUS", "ANONYMOUS", submissionDate,
+                paperId, title, getAbstractText(), getContent(),
+                authorId, authorName, submissionDate,
                 keywords, reviewerIds, status
         );
     }
@@ -0,0 +1,62 @@
+package model;
+
+/**
+ * Read-only summary of the ratings a paper has received.
+ */
+public class RatingSummary {
+    private final String paperId;
+    private final int count;
+    private final long sum;
+    private final int min;
+    private final int max;
+    private final int[] histogram;  // histogram[r - 1] = number of reviews rated r
+
+    public RatingSummary(String paperId, int count, long sum, int min, int max, int[] histogram) {
+        this.paperId = paperId;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.histogram = histogram.clone();
+    }
+
+    public String getPaperId() {
+        return paperId;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Average rating, or 0.0 if the paper has no reviews
+     */
+    public double getAverage() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    /**
+     * Number of reviews with the given rating (1-5)
+     */
+    public int getCountForRating(int rating) {
+        return rating >= 1 && rating <= histogram.length ? histogram[rating - 1] : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RatingSummary{paperId='%s', count=%d, average=%.2f, min=%d, max=%d}",
+                paperId, count, getAverage(), min, max);
+    }
+}
@@ -8,7 +8,7 @@ import java.util.UUID;
  * Class representing a review for a paper.
  * Demonstrates encapsulation and information hiding.
  */
-public class Review implements Serializable {
+public class Review implements Serializable, Versioned {
     private static final long serialVersionUID = 1L;
 
     private String reviewId;
@@ -19,6 +19,9 @@ public class Review implements Serializable {
     private String comments;
     private LocalDateTime submissionDate;
     private ReviewStatus status;
+    private transient long version;
+    // Reviews never change after creation, so the blinded copy is built once and shared
+    private transient volatile Review blindedCopy;
 
     /**
      * Constructor for creating a new review
@@ -90,14 +93,30 @@ public class Review implements Serializable {
         return status;
     }
 
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     /**
      * Get a blinded version of the review (hides reviewer information)
      */
     public Review getBlindedCopy() {
-        return new Review(
-                reviewId, paperId, reviewerId, "ANONYMOUS",
-                rating, comments, submissionDate, status
-        );
+        Review copy = blindedCopy;
+        if (copy == null) {
+            copy = new Review(
+                    reviewId, paperId, reviewerId, "ANONYMOUS",
+                    rating, comments, submissionDate, status
+            );
+            copy.blindedCopy = copy;
+            blindedCopy = copy;
+        }
+        return copy;
     }
 
     @Override
@@ -2,6 +2,7 @@ package model;
 
 /**
  * Enum representing the possible statuses of a review in the system.
+ * The binary storage codecs persist the ordinal, so new values must be appended at the end.
  */
 public enum ReviewStatus {
     SUBMITTED, UNDER_REVIEW, ACCEPTED, IN_PROGRESS, PENDING, COMPLETED
@@ -50,6 +50,13 @@ public class Student extends User {
         return "Student";
     }
 
+    @Override
+    public Student copy() {
+        Student copy = new Student(getUserId(), getName(), getEmail(), getPassword(), department, studentId);
+        copy.setVersion(getVersion());
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Student{" +
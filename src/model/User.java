@@ -7,13 +7,14 @@ import java.util.UUID;
  * Abstract base class representing a user in the peer review system.
  * Implements the concept of abstraction by defining common attributes and behaviors.
  */
-public abstract class User implements Serializable {
+public abstract class User implements Serializable, Versioned {
     private static final long serialVersionUID = 1L;
 
     private String userId;
     private String name;
     private String email;
     private String password;
+    private transient long version;
 
     /**
      * Constructor for creating a new user with generated ID
@@ -48,9 +49,26 @@ public abstract class User implements Serializable {
         return email;
     }
 
+    /**
+     * Stored password, needed when persisting the user
+     */
+    public String getPassword() {
+        return password;
+    }
+
     public void setPassword(String password) {
         this.password = password;
     }
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     /**
      * Verify if the provided password matches the user's password
      */
@@ -63,6 +81,12 @@ public abstract class User implements Serializable {
      */
     public abstract String getRole();
 
+    /**
+     * Get an independent copy of the user (same ID and version) that can be modified
+     * and written back with compareAndUpdate without touching the stored instance
+     */
+    public abstract User copy();
+
     @Override
     public String toString() {
         return STR."User{userId='\{userId}', name='\{name}', email='\{email}', role='\{getRole()}'}";
@@ -0,0 +1,20 @@
+package model;
+
+/**
+ * Interface for entities carrying a version stamp for optimistic concurrency.
+ * Storage increments the version on every successful update, so a writer can detect
+ * that the entity changed between reading it and writing it back.
+ * Versions are kept in memory only and start again from 0 when data is loaded.
+ */
+public interface Versioned {
+
+    /**
+     * Current version of the entity
+     */
+    long getVersion();
+
+    /**
+     * Set by storage when the entity is written
+     */
+    void setVersion(long version);
+}
@@ -0,0 +1,302 @@
+package service;
+
+import model.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Imports students, faculty, papers and reviewer assignments from a CSV or JSONL file.
+ * The file is read one row at a time and every row is validated on its own; emails are
+ * checked against the email index and against the rows read before, so a bad or duplicate
+ * row is rejected without failing the rest. The accepted users and papers are then stored
+ * with one batch write per storage, and assignments to existing papers with one more.
+ * The three writes commit separately, in that order: if one is rejected, the later ones are
+ * skipped and their rows reported as not imported, while the earlier ones stay committed.
+ *
+ * Every row has a "type" field:
+ *   student    - name, email, password, department, studentId
+ *   faculty    - name, email, password, department, position
+ *   paper      - title, abstract, content, author (email), keywords, reviewers (emails)
+ *   assignment - paperId, reviewer (email)
+ * Keywords and reviewers are separated by ';'. Users must come before the rows that refer to them.
+ */
+public class BulkImporter {
+
+    /**
+     * A row that was not imported
+     */
+    public record Rejection(int line, String reason) {
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public record Report(int rows, int users, int papers, int assignments,
+                         List<Rejection> rejected, long elapsedNanos) {
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rows * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Import{rows=%d, users=%d, papers=%d, assignments=%d, rejected=%d, %.0f rows/s}",
+                    rows, users, papers, assignments, rejected.size(), rowsPerSecond());
+        }
+    }
+
+    private record Assignment(int line, String paperId, String reviewerId) {
+    }
+
+    private final UserService userService;
+    private final PaperService paperService;
+
+    public BulkImporter(UserService userService, PaperService paperService) {
+        this.userService = userService;
+        this.paperService = paperService;
+    }
+
+    /**
+     * Import a file; the format is chosen by its extension (.csv, or .jsonl / .ndjson)
+     * @throws IOException if the file cannot be read
+     */
+    public Report importFile(Path file) throws IOException {
+        long start = System.nanoTime();
+        Batch batch = new Batch();
+
+        try (ImportReader reader = ImportReader.open(file)) {
+            ImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                batch.rows++;
+                String error = row.error() != null ? row.error() : batch.add(row.line(), row.fields());
+                if (error != null) {
+                    batch.rejected.add(new Rejection(row.line(), error));
+                }
+            }
+        }
+
+        batch.apply();
+        batch.rejected.sort(Comparator.comparingInt(Rejection::line));
+        return new Report(batch.rows, batch.users.size(), batch.papers.size(), batch.assignmentsApplied,
+                List.copyOf(batch.rejected), System.nanoTime() - start);
+    }
+
+    /**
+     * Rows accepted so far, waiting to be written
+     */
+    private class Batch {
+        private final Map<String, User> usersByEmail = new HashMap<>();  // normalized email -> new user
+        private final List<User> users = new ArrayList<>();
+        private final List<Integer> userLines = new ArrayList<>();
+        private final List<Paper> papers = new ArrayList<>();
+        private final List<Integer> paperLines = new ArrayList<>();
+        private final List<Assignment> assignments = new ArrayList<>();
+        private final Map<String, Set<String>> reviewersByPaper = new HashMap<>();
+        private final List<Rejection> rejected = new ArrayList<>();
+        private int rows;
+        private int assignmentsApplied;
+
+        /**
+         * Validate a row and queue what it creates
+         * @return Why the row was rejected, or null if it was accepted
+         */
+        String add(int line, Map<String, String> fields) {
+            String type = fields.getOrDefault("type", "").trim().toLowerCase(Locale.ROOT);
+            return switch (type) {
+                case "student", "faculty" -> addUser(line, type, fields);
+                case "paper" -> addPaper(line, fields);
+                case "assignment" -> addAssignment(line, fields);
+                case "" -> "Missing type";
+                default -> "Unknown type: " + type;
+            };
+        }
+
+        private String addUser(int line, String type, Map<String, String> fields) {
+            String detail = type.equals("student") ? "studentid" : "position";
+            String missing = missing(fields, "name", "email", "password", "department", detail);
+            if (missing != null) {
+                return missing;
+            }
+
+            String email = fields.get("email").trim();
+            String key = UserService.normalizeEmail(email);
+            if (key.indexOf('@') <= 0) {
+                return "Invalid email: " + email;
+            }
+            if (usersByEmail.containsKey(key)) {
+                return "Duplicate email in file: " + email;
+            }
+            if (userService.findUserByEmail(key).isPresent()) {
+                return "Email already registered: " + email;
+            }
+
+            String name = fields.get("name").trim();
+            String department = fields.get("department").trim();
+            User user = type.equals("student")
+                    ? new Student(name, email, fields.get("password"), department, fields.get(detail).trim())
+                    : new Faculty(name, email, fields.get("password"), department, fields.get(detail).trim());
+            usersByEmail.put(key, user);
+            users.add(user);
+            userLines.add(line);
+            return null;
+        }
+
+        private String addPaper(int line, Map<String, String> fields) {
+            String missing = missing(fields, "title", "abstract", "content", "author");
+            if (missing != null) {
+                return missing;
+            }
+
+            User author = findUser(fields.get("author"));
+            if (author == null) {
+                return "Unknown author: " + fields.get("author").trim();
+            }
+            if (!(author instanceof Student || author instanceof Faculty)) {
+                return "Author must be a student or faculty member: " + author.getEmail();
+            }
+
+            Paper paper = new Paper(fields.get("title").trim(), fields.get("abstract"), fields.get("content"),
+                    author.getUserId(), author.getName(), split(fields.get("keywords")));
+            for (String email : split(fields.get("reviewers"))) {
+                User reviewer = findUser(email);
+                String error = checkReviewer(reviewer, email, author.getUserId());
+                if (error != null) {
+                    return error;
+                }
+                paper.assignReviewer(reviewer.getUserId());
+            }
+            if (!paper.getReviewerIds().isEmpty()) {
+                paper.setStatus(ReviewStatus.IN_PROGRESS);
+            }
+
+            papers.add(paper);
+            paperLines.add(line);
+            return null;
+        }
+
+        private String addAssignment(int line, Map<String, String> fields) {
+            String missing = missing(fields, "paperid", "reviewer");
+            if (missing != null) {
+                return missing;
+            }
+
+            String paperId = fields.get("paperid").trim();
+            Optional<Paper> paper = paperService.findPaperById(paperId);
+            if (paper.isEmpty()) {
+                return "Unknown paper: " + paperId;
+            }
+            User reviewer = findUser(fields.get("reviewer"));
+            String error = checkReviewer(reviewer, fields.get("reviewer").trim(), paper.get().getAuthorId());
+            if (error != null) {
+                return error;
+            }
+            if (paper.get().hasReviewer(reviewer.getUserId())) {
+                return "Reviewer already assigned: " + fields.get("reviewer").trim();
+            }
+            if (!reviewersByPaper.computeIfAbsent(paperId, id -> new LinkedHashSet<>()).add(reviewer.getUserId())) {
+                return "Duplicate assignment in file: " + fields.get("reviewer").trim();
+            }
+
+            assignments.add(new Assignment(line, paperId, reviewer.getUserId()));
+            return null;
+        }
+
+        /**
+         * A user from this file or an already registered one
+         */
+        private User findUser(String email) {
+            String key = UserService.normalizeEmail(email);
+            User pending = usersByEmail.get(key);
+            return pending != null ? pending : userService.findUserByEmail(key).orElse(null);
+        }
+
+        /**
+         * Write the accepted rows: all users in one batch, then all papers in one batch,
+         * then all assignments to papers that already existed in one batch.
+         * Each batch is its own write; once one is rejected the later ones are not attempted.
+         */
+        void apply() {
+            if (!users.isEmpty() && !userService.registerAll(users)) {
+                // Another session registered one of the emails after it was checked
+                rejectAll(userLines, "Not imported: user batch rejected");
+                rejectAll(paperLines, "Not imported: user batch rejected");
+                assignments.forEach(a -> rejected.add(new Rejection(a.line(), "Not imported: user batch rejected")));
+                users.clear();
+                papers.clear();
+                return;
+            }
+
+            if (!papers.isEmpty() && !paperService.submitAll(papers)) {
+                // The users are already registered; the rows after them are not applied
+                rejectAll(paperLines, "Not imported: paper batch rejected");
+                assignments.forEach(a -> rejected.add(new Rejection(a.line(), "Not imported: paper batch rejected")));
+                papers.clear();
+                return;
+            }
+
+            if (assignments.isEmpty()) {
+                return;
+            }
+            Map<String, List<String>> added = paperService.assignReviewers(reviewersByPaper);
+            if (added == null) {
+                assignments.forEach(a -> rejected.add(new Rejection(a.line(), "Not imported: assignment batch rejected")));
+                return;
+            }
+            // Only count what was written; the paper may have been deleted or assigned since it was checked
+            for (Assignment assignment : assignments) {
+                if (added.getOrDefault(assignment.paperId(), List.of()).contains(assignment.reviewerId())) {
+                    assignmentsApplied++;
+                } else {
+                    rejected.add(new Rejection(assignment.line(),
+                            "Not imported: paper deleted or reviewer assigned in the meantime"));
+                }
+            }
+        }
+
+        private void rejectAll(List<Integer> lines, String reason) {
+            for (int line : lines) {
+                rejected.add(new Rejection(line, reason));
+            }
+        }
+    }
+
+    private static String checkReviewer(User reviewer, String email, String authorId) {
+        if (reviewer == null) {
+            return "Unknown reviewer: " + email;
+        }
+        if (!(reviewer instanceof Student || reviewer instanceof Faculty)) {
+            return "Reviewer must be a student or faculty member: " + email;
+        }
+        if (reviewer.getUserId().equals(authorId)) {
+            return "Author cannot review their own paper: " + email;
+        }
+        return null;
+    }
+
+    /**
+     * Name of the first required field that is missing or blank, as a rejection reason
+     */
+    private static String missing(Map<String, String> fields, String... names) {
+        for (String name : names) {
+            String value = fields.get(name);
+            if (value == null || value.isBlank()) {
+                return "Missing " + name;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> split(String list) {
+        if (list == null) {
+            return new ArrayList<>();
+        }
+        List<String> items = new ArrayList<>();
+        for (String item : list.split(";")) {
+            if (!item.isBlank()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+}
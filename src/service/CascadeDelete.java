@@ -0,0 +1,150 @@
+package service;
+
+import model.*;
+
+import java.util.*;
+
+/**
+ * Deletes a user or a paper together with everything that depends on it:
+ *   user  - the papers they wrote and the reviews of those papers, the reviews they wrote,
+ *           and their place on the reviewer list of other papers
+ *   paper - its reviews
+ * Dependents are found through the author, reviewer and paper indexes, so the cost grows
+ * with the number of dependents rather than with the size of the storages. Each kind of
+ * change is applied as one batch, children first, so an interrupted delete never leaves
+ * reviews of a missing paper behind. A dry run reports the same plan without changing anything.
+ */
+public class CascadeDelete {
+    private static final int MAX_ATTEMPTS = 8;
+
+    /**
+     * What a delete removed or changed, or would remove or change for a dry run
+     * @param papers Papers deleted
+     * @param reviews Reviews deleted
+     * @param detachedPapers Papers the deleted user was taken off as a reviewer
+     * @param applied Whether the changes were made (false for a dry run or a failed delete)
+     */
+    public record Report(List<Paper> papers, List<Review> reviews, List<Paper> detachedPapers, boolean applied) {
+        @Override
+        public String toString() {
+            return String.format("Cascade{papers=%d, reviews=%d, detachedPapers=%d, applied=%b}",
+                    papers.size(), reviews.size(), detachedPapers.size(), applied);
+        }
+    }
+
+    /**
+     * Dependents collected so far; kept across attempts so the report covers every attempt
+     */
+    private static class Plan {
+        private final Map<String, Paper> papers = new LinkedHashMap<>();
+        private final Map<String, Review> reviews = new LinkedHashMap<>();
+        private final Map<String, Paper> detachedPapers = new LinkedHashMap<>();
+
+        /**
+         * Add a paper and its reviews
+         * @return The reviews of the paper
+         */
+        private List<Review> addPaper(Paper paper, ReviewService reviewService) {
+            papers.put(paper.getPaperId(), paper);
+            List<Review> paperReviews = reviewService.findReviewsForPaper(paper.getPaperId());
+            paperReviews.forEach(this::addReview);
+            return paperReviews;
+        }
+
+        private void addReview(Review review) {
+            reviews.put(review.getReviewId(), review);
+        }
+
+        private Report report(boolean applied) {
+            return new Report(List.copyOf(papers.values()), List.copyOf(reviews.values()),
+                    List.copyOf(detachedPapers.values()), applied);
+        }
+    }
+
+    private final UserService userService;
+    private final PaperService paperService;
+    private final ReviewService reviewService;
+
+    public CascadeDelete(UserService userService, PaperService paperService, ReviewService reviewService) {
+        this.userService = userService;
+        this.paperService = paperService;
+        this.reviewService = reviewService;
+    }
+
+    /**
+     * Delete a user with their papers, the reviews of those papers, the reviews they
+     * wrote and their reviewer assignments
+     * @param dryRun Only report what would be deleted
+     * @return The report, or empty if the user does not exist
+     */
+    public Optional<Report> deleteUser(String userId, boolean dryRun) {
+        Plan plan = new Plan();
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (userService.findUserById(userId).isEmpty()) {
+                return attempt == 0 ? Optional.empty() : Optional.of(plan.report(true));
+            }
+
+            // Dependents still present; anything removed by an earlier attempt is gone from the indexes
+            Set<String> reviewIds = new LinkedHashSet<>();
+            List<String> paperIds = new ArrayList<>();
+            for (Paper paper : paperService.getPapersByAuthor(userId)) {
+                paperIds.add(paper.getPaperId());
+                plan.addPaper(paper, reviewService).forEach(review -> reviewIds.add(review.getReviewId()));
+            }
+            for (Review review : reviewService.getReviewsByReviewer(userId)) {
+                plan.addReview(review);
+                reviewIds.add(review.getReviewId());
+            }
+            // As stored: the blinded copies of getPapersForReviewer would hide the authors in the report
+            List<Paper> reviewed = paperService.findPapersForReviewer(userId);
+            for (Paper paper : reviewed) {
+                plan.detachedPapers.put(paper.getPaperId(), paper);
+            }
+
+            if (dryRun) {
+                return Optional.of(plan.report(false));
+            }
+
+            // Children first: reviews, then reviewer lists, then papers, then the user
+            if ((reviewIds.isEmpty() || reviewService.deleteReviews(reviewIds))
+                    && (reviewed.isEmpty() || paperService.removeReviewerFromAll(userId))
+                    && (paperIds.isEmpty() || paperService.deletePapers(paperIds))
+                    && userService.deleteUser(userId)) {
+                return Optional.of(plan.report(true));
+            }
+            // Something changed concurrently; look the dependents up again
+        }
+        return Optional.of(plan.report(false));
+    }
+
+    /**
+     * Delete a paper with its reviews
+     * @param dryRun Only report what would be deleted
+     * @return The report, or empty if the paper does not exist
+     */
+    public Optional<Report> deletePaper(String paperId, boolean dryRun) {
+        Plan plan = new Plan();
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Optional<Paper> paper = paperService.findPaperById(paperId);
+            if (paper.isEmpty()) {
+                return attempt == 0 ? Optional.empty() : Optional.of(plan.report(true));
+            }
+
+            List<String> reviewIds = plan.addPaper(paper.get(), reviewService).stream()
+                    .map(Review::getReviewId)
+                    .toList();
+
+            if (dryRun) {
+                return Optional.of(plan.report(false));
+            }
+
+            if ((reviewIds.isEmpty() || reviewService.deleteReviews(reviewIds))
+                    && paperService.deletePaper(paperId)) {
+                return Optional.of(plan.report(true));
+            }
+        }
+        return Optional.of(plan.report(false));
+    }
+}
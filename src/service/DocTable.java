@@ -0,0 +1,163 @@
+package service;
+
+import java.util.*;
+
+/**
+ * Document numbering shared by the append-only paper indexes (TextIndex and TitleLookup).
+ *
+ * Every indexed version of a paper gets the next document number, so lists of documents
+ * are only ever appended to in increasing order and can be kept as primitive int arrays.
+ * Removing a paper just marks its document as deleted; once deleted documents outnumber
+ * the live ones, the owning index calls compact() to renumber the live documents and
+ * compact(lists, renumbered) to drop the deleted ones from its lists.
+ *
+ * Not thread-safe: the owning index guards it with its own lock.
+ */
+class DocTable {
+    private static final int MIN_COMPACTION_DOCS = 1024;
+
+    /**
+     * Documents sharing one key (a term or trigram), in increasing document order,
+     * optionally with one int per document such as a term frequency
+     */
+    static class DocList {
+        int[] docs = new int[4];
+        int[] values;  // null if the list carries no values
+        int size;
+
+        DocList(boolean withValues) {
+            this.values = withValues ? new int[4] : null;
+        }
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                if (values != null) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+            }
+            docs[size++] = doc;
+        }
+
+        void add(int doc, int value) {
+            add(doc);
+            values[size - 1] = value;
+        }
+    }
+
+    private final Map<String, Integer> docByPaper = new HashMap<>();
+    private String[] paperByDoc = new String[16];  // null once the document is deleted
+    private int docCount;  // document numbers handed out, including deleted ones
+    private int liveDocs;
+
+    /**
+     * Give a paper the next document number. The paper's previous document must have been
+     * deleted first; the owner grows its per-document arrays to capacity() afterwards.
+     */
+    int add(String paperId) {
+        int doc = docCount++;
+        if (doc == paperByDoc.length) {
+            paperByDoc = Arrays.copyOf(paperByDoc, doc * 2);
+        }
+        paperByDoc[doc] = paperId;
+        docByPaper.put(paperId, doc);
+        liveDocs++;
+        return doc;
+    }
+
+    /**
+     * Mark the current document of a paper as deleted
+     * @return The deleted document, or -1 if the paper is not indexed
+     */
+    int delete(String paperId) {
+        Integer doc = docByPaper.remove(paperId);
+        if (doc == null) {
+            return -1;
+        }
+        paperByDoc[doc] = null;
+        liveDocs--;
+        return doc;
+    }
+
+    /**
+     * Whether enough documents are deleted for compaction to pay off
+     */
+    boolean needsCompaction() {
+        int deleted = docCount - liveDocs;
+        return deleted >= MIN_COMPACTION_DOCS && deleted > liveDocs;
+    }
+
+    /**
+     * Renumber the live documents from 0, keeping their order. A document never moves to a
+     * higher number, so owners can move their per-document data forward in place.
+     * @return New number of every old document, -1 for deleted ones
+     */
+    int[] compact() {
+        int[] renumbered = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (paperByDoc[doc] != null) {
+                renumbered[doc] = next;
+                paperByDoc[next] = paperByDoc[doc];
+                docByPaper.put(paperByDoc[next], next);
+                next++;
+            } else {
+                renumbered[doc] = -1;
+            }
+        }
+        Arrays.fill(paperByDoc, next, docCount, null);
+        docCount = next;
+        return renumbered;
+    }
+
+    /**
+     * Drop deleted documents from every list and renumber the rest; lists left empty are removed
+     */
+    static void compact(Map<String, DocList> lists, int[] renumbered) {
+        Iterator<DocList> it = lists.values().iterator();
+        while (it.hasNext()) {
+            DocList list = it.next();
+            int size = 0;
+            for (int i = 0; i < list.size; i++) {
+                int doc = renumbered[list.docs[i]];
+                if (doc >= 0) {
+                    list.docs[size] = doc;
+                    if (list.values != null) {
+                        list.values[size] = list.values[i];
+                    }
+                    size++;
+                }
+            }
+            if (size == 0) {
+                it.remove();
+            } else {
+                list.size = size;
+            }
+        }
+    }
+
+    /**
+     * The paper a document belongs to, or null if the document is deleted
+     */
+    String paperOf(int doc) {
+        return paperByDoc[doc];
+    }
+
+    /**
+     * Document numbers handed out since the last compaction, including deleted ones
+     */
+    int docCount() {
+        return docCount;
+    }
+
+    int liveDocs() {
+        return liveDocs;
+    }
+
+    /**
+     * Size the owner's per-document arrays must have
+     */
+    int capacity() {
+        return paperByDoc.length;
+    }
+}
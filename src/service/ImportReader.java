@@ -0,0 +1,305 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Reads a bulk import file one row at a time, as a map from field name to value.
+ * CSV files start with a header row naming the fields; quoted values may contain commas,
+ * doubled quotes and line breaks. JSONL files hold one flat JSON object per line; numbers
+ * and booleans are read as text, nulls are left out and arrays are joined with ';'.
+ * Field names are case-insensitive and returned in lower case.
+ */
+class ImportReader implements Closeable {
+
+    /**
+     * One row of the file; a row that could not be parsed has an error instead of fields
+     */
+    record Row(int line, Map<String, String> fields, String error) {
+    }
+
+    private final BufferedReader in;
+    private final boolean csv;
+    private List<String> header;
+    private int line;  // last line read
+
+    private ImportReader(BufferedReader in, boolean csv) {
+        this.in = in;
+        this.csv = csv;
+    }
+
+    /**
+     * Open a file, choosing the format by its extension (.csv, or .jsonl / .ndjson)
+     * @throws IOException if the file cannot be read or its format is not recognised
+     */
+    static ImportReader open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean csv = name.endsWith(".csv");
+        if (!csv && !name.endsWith(".jsonl") && !name.endsWith(".ndjson")) {
+            throw new IOException("Unsupported file type (expected .csv or .jsonl): " + file.getFileName());
+        }
+
+        ImportReader reader = new ImportReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), csv);
+        if (csv) {
+            Row header = reader.nextCsv(null);
+            if (header == null || header.error() != null) {
+                reader.close();
+                throw new IOException("Missing or malformed CSV header in " + file.getFileName());
+            }
+            reader.header = new ArrayList<>(header.fields().values());
+        }
+        return reader;
+    }
+
+    /**
+     * Read the next non-blank row
+     * @return The row, or null at the end of the file
+     */
+    Row next() throws IOException {
+        return csv ? nextCsv(header) : nextJson();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Read one CSV record, which may span several lines if a quoted value contains line breaks
+     * @param names Field names, or null to number the fields (for the header itself)
+     */
+    private Row nextCsv(List<String> names) throws IOException {
+        while (true) {
+            int start = line + 1;
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            boolean empty = true;
+
+            while (true) {
+                int c = in.read();
+                if (c == -1) {
+                    if (empty) {
+                        return null;
+                    }
+                    if (quoted) {
+                        line++;
+                        return new Row(start, null, "Unterminated quoted value");
+                    }
+                    line++;
+                    values.add(value.toString());
+                    break;
+                }
+                empty = false;
+
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int next = in.read();
+                        if (next == '"') {
+                            value.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                in.reset();
+                            }
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        value.append((char) c);
+                    }
+                } else if (c == '"' && value.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    values.add(value.toString());
+                    break;
+                } else if (c != '\r') {
+                    value.append((char) c);
+                }
+            }
+
+            // Skip blank lines
+            if (values.size() == 1 && values.get(0).isBlank()) {
+                continue;
+            }
+
+            Map<String, String> fields = new LinkedHashMap<>();
+            if (names == null) {
+                for (int i = 0; i < values.size(); i++) {
+                    fields.put(String.valueOf(i), values.get(i).trim().toLowerCase(Locale.ROOT));
+                }
+                return new Row(start, fields, null);
+            }
+            if (values.size() != names.size()) {
+                return new Row(start, null, "Expected " + names.size() + " fields but found " + values.size());
+            }
+            for (int i = 0; i < values.size(); i++) {
+                if (!values.get(i).isEmpty()) {
+                    fields.put(names.get(i), values.get(i));
+                }
+            }
+            return new Row(start, fields, null);
+        }
+    }
+
+    private Row nextJson() throws IOException {
+        String text;
+        do {
+            text = in.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (text.isBlank());
+
+        try {
+            return new Row(line, new JsonLine(text).object(), null);
+        } catch (IllegalArgumentException e) {
+            return new Row(line, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Parser for one flat JSON object
+     */
+    private static class JsonLine {
+        private final String text;
+        private int pos;
+
+        JsonLine(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> object() {
+            Map<String, String> fields = new LinkedHashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                do {
+                    String name = string().toLowerCase(Locale.ROOT);
+                    expect(':');
+                    String value = value(true);
+                    if (value != null) {
+                        fields.put(name, value);
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+            if (peek() != 0) {
+                throw new IllegalArgumentException("Unexpected text after JSON object at column " + (pos + 1));
+            }
+            return fields;
+        }
+
+        /**
+         * A value as text, or null for JSON null
+         */
+        private String value(boolean allowArray) {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '[' && allowArray) {
+                pos++;
+                StringJoiner items = new StringJoiner(";");
+                if (peek() == ']') {
+                    pos++;
+                    return "";
+                }
+                do {
+                    String item = value(false);
+                    if (item != null) {
+                        items.add(item);
+                    }
+                } while (consume(','));
+                expect(']');
+                return items.toString();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("Nested values are not supported (column " + (pos + 1) + ")");
+            }
+
+            int start = pos;
+            while (pos < text.length() && "{}[],: \t\"".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("Expected a value at column " + (start + 1));
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder result = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return result.toString();
+                }
+                if (c != '\\') {
+                    result.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n' -> result.append('\n');
+                    case 't' -> result.append('\t');
+                    case 'r' -> result.append('\r');
+                    case 'b' -> result.append('\b');
+                    case 'f' -> result.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw new IllegalArgumentException("Truncated \\u escape at column " + pos);
+                        }
+                        try {
+                            result.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Invalid \\u escape at column " + pos);
+                        }
+                        pos += 4;
+                    }
+                    default -> result.append(escaped);  // \" \\ \/
+                }
+            }
+            throw new IllegalArgumentException("Unterminated string");
+        }
+
+        private char peek() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        private boolean consume(char c) {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' at column " + (pos + 1));
+            }
+        }
+    }
+}
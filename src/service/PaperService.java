@@ -2,9 +2,15 @@ package service;
 
 import model.*;
 import storage.DataStorage;
+import storage.Page;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -12,12 +18,45 @@ import java.util.stream.Collectors;
  * Demonstrates separation of concerns by isolating paper management logic.
  */
 public class PaperService {
-    private static DataStorage<Paper> paperStorage = null;
+    public static final String SORT_BY_TITLE = "title";
+    public static final String SORT_BY_SUBMISSION_DATE = "submissionDate";
+
+    private static final String AUTHOR_INDEX = "author";
+    private static final String REVIEWER_INDEX = "reviewer";
+    private static final int MAX_UPDATE_ATTEMPTS = 16;
+    // Content is left out of the full-text index to keep it small; titles, abstracts and keywords are enough
+    private static final boolean INDEX_CONTENT = false;
+
+    private final DataStorage<Paper> paperStorage;
     private final UserService userService;
+    private final TextIndex textIndex = new TextIndex(INDEX_CONTENT);
+    private final TitleLookup titleLookup = new TitleLookup();
+    private final StatusBuckets statusBuckets = new StatusBuckets();
 
     public PaperService(DataStorage<Paper> paperStorage, UserService userService) {
-        PaperService.paperStorage = paperStorage;
+        this.paperStorage = paperStorage;
         this.userService = userService;
+        // authorId -> papers and reviewerId -> papers, kept up to date by the storage
+        paperStorage.createIndex(AUTHOR_INDEX, paper -> List.of(paper.getAuthorId()));
+        paperStorage.createIndex(REVIEWER_INDEX, Paper::getReviewerIds);
+        paperStorage.createSortedIndex(SORT_BY_TITLE, paper -> SortKeys.text(paper.getTitle()));
+        paperStorage.createSortedIndex(SORT_BY_SUBMISSION_DATE, paper -> SortKeys.date(paper.getSubmissionDate()));
+        paperStorage.stream().forEach(this::indexPaper);
+    }
+
+    /**
+     * Bring the search indexes and status buckets up to date with a stored paper
+     */
+    private void indexPaper(Paper paper) {
+        textIndex.put(paper);
+        titleLookup.put(paper);
+        statusBuckets.put(paper);
+    }
+
+    private void unindexPaper(String paperId) {
+        textIndex.remove(paperId);
+        titleLookup.remove(paperId);
+        statusBuckets.remove(paperId);
     }
 
     /**
@@ -29,16 +68,32 @@ public class PaperService {
 
         if (author.isPresent()) {
             Paper paper = new Paper(title, abstractText, content, authorId, author.get().getName(), keywords);
-            return paperStorage.save(paper);
+            if (paperStorage.save(paper)) {
+                indexPaper(paper);
+                return true;
+            }
         }
 
         return false;
     }
 
+    /**
+     * Store several new papers at once with a single write, e.g. for a bulk import.
+     * The papers already carry their author and any assigned reviewers.
+     * Either all are stored or none.
+     */
+    public boolean submitAll(List<Paper> papers) {
+        if (!paperStorage.saveAll(papers)) {
+            return false;
+        }
+        papers.forEach(this::indexPaper);
+        return true;
+    }
+
     /**
      * Find a paper by its ID
      */
-    public static Optional<Paper> findPaperById(String paperId) {
+    public Optional<Paper> findPaperById(String paperId) {
         return paperStorage.findById(paperId);
     }
 
@@ -49,35 +104,48 @@ public class PaperService {
         return paperStorage.findAll();
     }
 
+    /**
+     * Get one page of papers
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum number of papers on the page
+     * @param sortKey SORT_BY_TITLE or SORT_BY_SUBMISSION_DATE
+     */
+    public Page<Paper> getPapersPage(String cursor, int limit, String sortKey) {
+        return paperStorage.findPage(cursor, limit, sortKey);
+    }
+
     /**
      * Get papers submitted by a specific author
      */
-    public static List<Paper> getPapersByAuthor(String authorId) {
-        return paperStorage.findAll().stream()
-                .filter(paper -> paper.getAuthorId().equals(authorId))
-                .collect(Collectors.toList());
+    public List<Paper> getPapersByAuthor(String authorId) {
+        return paperStorage.findWhere(paperStorage.indexEquals(AUTHOR_INDEX, authorId));
     }
 
     /**
      * Get papers assigned to a specific reviewer
      */
     public List<Paper> getPapersForReviewer(String reviewerId) {
-        return paperStorage.findAll().stream()
-                .filter(paper -> paper.getReviewerIds().contains(reviewerId))
+        return findPapersForReviewer(reviewerId).stream()
                 .map(Paper::getBlindedCopy)  // Return blinded copies for review
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Get the full (not blinded) papers assigned to a reviewer
+     */
+    List<Paper> findPapersForReviewer(String reviewerId) {
+        return paperStorage.findWhere(paperStorage.indexEquals(REVIEWER_INDEX, reviewerId));
+    }
+
     /**
      * Assign a reviewer to a paper
      */
     public boolean assignReviewer(String paperId, String reviewerId) {
-        Optional<Paper> paperOpt = paperStorage.findById(paperId);
-        Optional<User> reviewerOpt = userService.findUserById(reviewerId);
-
-        if (paperOpt.isPresent() && reviewerOpt.isPresent()) {
-            Paper paper = paperOpt.get();
+        if (userService.findUserById(reviewerId).isEmpty()) {
+            return false;
+        }
 
+        return modifyPaper(paperId, paper -> {
             // Don't allow authors to review their own papers
             if (paper.getAuthorId().equals(reviewerId)) {
                 return false;
@@ -85,78 +153,277 @@ public class PaperService {
 
             paper.assignReviewer(reviewerId);
             paper.setStatus(ReviewStatus.IN_PROGRESS);
-            return paperStorage.update(paper);
+            return true;
+        });
+    }
+
+    /**
+     * Assign reviewers to several papers with a single write, e.g. for a bulk import.
+     * A reviewer who is already assigned or is the paper's author is skipped, as are papers
+     * deleted in the meantime.
+     * @param reviewersByPaper Paper ID -> IDs of the reviewers to add
+     * @return Paper ID -> IDs of the reviewers actually added, or null if a reviewer does not
+     *         exist or the write failed
+     */
+    public Map<String, List<String>> assignReviewers(Map<String, ? extends Collection<String>> reviewersByPaper) {
+        for (Collection<String> reviewerIds : reviewersByPaper.values()) {
+            for (String reviewerId : reviewerIds) {
+                if (userService.findUserById(reviewerId).isEmpty()) {
+                    return null;
+                }
+            }
+        }
+
+        Map<String, List<String>> added = new HashMap<>();
+        List<Paper> stored = modifyPapers(reviewersByPaper.keySet(), paper -> {
+            List<String> newReviewers = new ArrayList<>();
+            for (String reviewerId : reviewersByPaper.get(paper.getPaperId())) {
+                if (!paper.hasReviewer(reviewerId)) {
+                    paper.assignReviewer(reviewerId);
+                    if (paper.hasReviewer(reviewerId)) {
+                        newReviewers.add(reviewerId);
+                    }
+                }
+            }
+            added.put(paper.getPaperId(), newReviewers);  // replaces what an earlier attempt added
+            if (newReviewers.isEmpty()) {
+                return false;
+            }
+            paper.setStatus(ReviewStatus.IN_PROGRESS);
+            return true;
+        });
+        if (stored == null) {
+            return null;
         }
 
-        return false;
+        Map<String, List<String>> result = new HashMap<>();
+        for (Paper paper : stored) {
+            result.put(paper.getPaperId(), added.get(paper.getPaperId()));
+        }
+        return result;
     }
 
     /**
-     * Remove a reviewer from a paper
+     * Move all of a reviewer's assignments to another reviewer with a single write,
+     * e.g. when a reviewer leaves. Papers written by the new reviewer only lose the old one.
+     * @return false if the new reviewer does not exist or the write failed
      */
-    public boolean removeReviewer(String paperId, String reviewerId) {
-        Optional<Paper> paperOpt = paperStorage.findById(paperId);
+    public boolean reassignReviewer(String fromReviewerId, String toReviewerId) {
+        if (userService.findUserById(toReviewerId).isEmpty()) {
+            return false;
+        }
+        return moveReviewer(fromReviewerId, toReviewerId);
+    }
 
-        if (paperOpt.isPresent()) {
-            Paper paper = paperOpt.get();
-            paper.removeReviewer(reviewerId);
+    /**
+     * Take a reviewer off every paper they are assigned to with a single write,
+     * e.g. before the reviewer is deleted
+     * @return false if the write failed
+     */
+    public boolean removeReviewerFromAll(String reviewerId) {
+        return moveReviewer(reviewerId, null);
+    }
+
+    /**
+     * Replace a reviewer on all their papers, or just remove them if toReviewerId is null
+     */
+    private boolean moveReviewer(String fromReviewerId, String toReviewerId) {
+        List<String> paperIds = findPapersForReviewer(fromReviewerId).stream()
+                .map(Paper::getPaperId)
+                .toList();
+        return null != modifyPapers(paperIds, paper -> {
+            if (!paper.getReviewerIds().contains(fromReviewerId)) {
+                return false;
+            }
+            paper.removeReviewer(fromReviewerId);
+            if (toReviewerId != null) {
+                paper.assignReviewer(toReviewerId);
+            }
 
             // If no reviewers left, set status back to PENDING
             if (paper.getReviewerIds().isEmpty()) {
                 paper.setStatus(ReviewStatus.PENDING);
             }
+            return true;
+        });
+    }
 
-            return paperStorage.update(paper);
-        }
+    /**
+     * Remove a reviewer from a paper
+     */
+    public boolean removeReviewer(String paperId, String reviewerId) {
+        return modifyPaper(paperId, paper -> {
+            paper.removeReviewer(reviewerId);
 
-        return false;
+            // If no reviewers left, set status back to PENDING
+            if (paper.getReviewerIds().isEmpty()) {
+                paper.setStatus(ReviewStatus.PENDING);
+            }
+            return true;
+        });
     }
 
     /**
      * Update a paper's status
      */
     public boolean updatePaperStatus(String paperId, ReviewStatus status) {
-        Optional<Paper> paperOpt = paperStorage.findById(paperId);
-
-        if (paperOpt.isPresent()) {
-            Paper paper = paperOpt.get();
+        return modifyPaper(paperId, paper -> {
             paper.setStatus(status);
-            return paperStorage.update(paper);
-        }
+            return true;
+        });
+    }
 
+    /**
+     * Read-modify-write a paper without a global lock.
+     * The change is applied to a private copy which is only stored if nobody else
+     * updated the paper in the meantime; otherwise the change is retried on fresh data.
+     * @param change Applies the modification, returning false to abandon it
+     * @return true if the modified paper was stored
+     */
+    private boolean modifyPaper(String paperId, Predicate<Paper> change) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Optional<Paper> paperOpt = paperStorage.findById(paperId);
+            if (paperOpt.isEmpty()) {
+                return false;
+            }
+
+            // Read the version before anything else touches the paper
+            long expected = paperOpt.get().getVersion();
+            Paper updated = paperOpt.get().copy();
+            if (!change.test(updated)) {
+                return false;
+            }
+
+            if (paperStorage.compareAndUpdate(expected, updated)) {
+                statusBuckets.put(updated);  // text is unchanged, only the status may have moved
+                return true;
+            }
+        }
         return false;
     }
 
+    /**
+     * Read-modify-write several papers with a single write, like modifyPaper.
+     * Papers that no longer exist, and papers the change returns false for, are left out;
+     * if another update got in between, the whole batch is retried on fresh data.
+     * @param change Applies the modification to one paper, returning false to leave it unchanged
+     * @return The modified papers as stored, or null if the write failed
+     */
+    private List<Paper> modifyPapers(Collection<String> paperIds, Predicate<Paper> change) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            List<Paper> updated = new ArrayList<>();
+            for (String paperId : paperIds) {
+                Optional<Paper> paperOpt = paperStorage.findById(paperId);
+                if (paperOpt.isPresent()) {
+                    Paper copy = paperOpt.get().copy();
+                    if (change.test(copy)) {
+                        updated.add(copy);
+                    }
+                }
+            }
+
+            if (updated.isEmpty() || paperStorage.updateAll(updated)) {
+                updated.forEach(statusBuckets::put);
+                return updated;
+            }
+        }
+        return null;
+    }
+
     /**
      * Update paper information
      */
     public void updatePaper(Paper paper) {
-        paperStorage.update(paper);
+        if (paperStorage.update(paper)) {
+            indexPaper(paper);
+        }
     }
 
     /**
-     * Delete a paper by its ID
+     * Delete a paper by its ID.
+     * Its reviews are left in place; CascadeDelete removes them too.
      */
     public boolean deletePaper(String paperId) {
-        return paperStorage.deleteById(paperId);
+        if (paperStorage.deleteById(paperId)) {
+            unindexPaper(paperId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Delete several papers with a single write; either all are deleted or none,
+     * if any of them no longer exists
+     */
+    public boolean deletePapers(Collection<String> paperIds) {
+        if (paperStorage.deleteAll(paperIds)) {
+            paperIds.forEach(this::unindexPaper);
+            return true;
+        }
+        return false;
     }
 
     /**
-     * Get papers by status
+     * Get papers by status, in title order
      */
     public List<Paper> getPapersByStatus(ReviewStatus status) {
-        return paperStorage.findAll().stream()
-                .filter(paper -> paper.getStatus() == status)
-                .collect(Collectors.toList());
+        List<Paper> result = new ArrayList<>();
+        for (String paperId : statusBuckets.ids(status)) {
+            paperStorage.findById(paperId).ifPresent(result::add);
+        }
+        return result;
     }
 
     /**
-     * Get papers containing a keyword
+     * Get the number of papers with a status
+     */
+    public int countPapersByStatus(ReviewStatus status) {
+        return statusBuckets.count(status);
+    }
+
+    /**
+     * Get the number of papers in every status
+     */
+    public Map<ReviewStatus, Integer> getStatusCounts() {
+        return statusBuckets.counts();
+    }
+
+    /**
+     * Get papers whose title, abstract or keywords contain any word of the query,
+     * best match (BM25) first
+     * @param limit Maximum number of papers to return
+     */
+    public List<Paper> searchPapers(String query, int limit) {
+        List<Paper> result = new ArrayList<>();
+        for (String paperId : textIndex.search(query, limit)) {
+            paperStorage.findById(paperId).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Find papers by ID or title, as typed into the admin screens.
+     * Papers whose ID equals or starts with the query come first, then papers whose title
+     * contains it; matching is case-insensitive.
+     * @param limit Maximum number of papers to return
+     */
+    public List<Paper> lookup(String query, int limit) {
+        List<Paper> result = new ArrayList<>();
+        for (String paperId : titleLookup.lookup(query, limit)) {
+            paperStorage.findById(paperId).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Get papers with a keyword containing the given text, ignoring case.
+     * Only keywords are matched; use searchPapers() for ranked full-text search.
      */
     public List<Paper> searchPapersByKeyword(String keyword) {
-        return paperStorage.findAll().stream()
-                .filter(paper -> paper.getKeywords().stream()
-                        .anyMatch(k -> k.toLowerCase().contains(keyword.toLowerCase())))
-                .collect(Collectors.toList());
+        List<Paper> result = new ArrayList<>();
+        for (String paperId : textIndex.findByKeyword(keyword)) {
+            paperStorage.findById(paperId).ifPresent(result::add);
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package service;
+
+import model.RatingSummary;
+import model.Review;
+
+import java.util.*;
+
+/**
+ * Running per-paper rating statistics, updated as reviews are added, changed or removed.
+ * Averages are O(1) and the top-rated papers are kept in sorted order,
+ * so neither needs to look at the review table.
+ */
+class RatingAggregates {
+    private static final int MAX_RATING = 5;
+
+    /**
+     * Mutable statistics for one paper
+     */
+    private static class Stats {
+        final String paperId;
+        final int[] histogram = new int[MAX_RATING];
+        int count;
+        long sum;
+
+        Stats(String paperId) {
+            this.paperId = paperId;
+        }
+
+        double average() {
+            return count == 0 ? 0.0 : (double) sum / count;
+        }
+
+        RatingSummary toSummary() {
+            int min = 0;
+            int max = 0;
+            for (int r = 1; r <= MAX_RATING; r++) {
+                if (histogram[r - 1] > 0) {
+                    if (min == 0) {
+                        min = r;
+                    }
+                    max = r;
+                }
+            }
+            return new RatingSummary(paperId, count, sum, min, max, histogram);
+        }
+    }
+
+    /**
+     * Which paper and rating a review currently contributes
+     */
+    private record Contribution(String paperId, int rating) {
+    }
+
+    // Highest average first; ties broken by paper ID so the ordering is total
+    private static final Comparator<Stats> BY_AVERAGE_DESC = Comparator
+            .comparingDouble(Stats::average).reversed()
+            .thenComparing(stats -> stats.paperId);
+
+    private final Map<String, Stats> statsByPaper = new HashMap<>();
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    private final TreeSet<Stats> ranking = new TreeSet<>(BY_AVERAGE_DESC);
+
+    RatingAggregates(Collection<Review> reviews) {
+        for (Review review : reviews) {
+            add(review);
+        }
+    }
+
+    /**
+     * Count a review that was just stored
+     */
+    synchronized void add(Review review) {
+        Contribution contribution = new Contribution(review.getPaperId(), review.getRating());
+        Contribution previous = contributions.put(review.getReviewId(), contribution);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(contribution, 1);
+    }
+
+    /**
+     * Stop counting a review that was removed
+     */
+    synchronized void remove(String reviewId) {
+        Contribution previous = contributions.remove(reviewId);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+    }
+
+    private void apply(Contribution contribution, int delta) {
+        Stats stats = statsByPaper.computeIfAbsent(contribution.paperId(), Stats::new);
+
+        // Re-position in the ranking: remove before the key changes
+        ranking.remove(stats);
+        stats.count += delta;
+        stats.sum += (long) delta * contribution.rating();
+        stats.histogram[contribution.rating() - 1] += delta;
+
+        if (stats.count == 0) {
+            statsByPaper.remove(contribution.paperId());
+        } else {
+            ranking.add(stats);
+        }
+    }
+
+    synchronized double average(String paperId) {
+        Stats stats = statsByPaper.get(paperId);
+        return stats == null ? 0.0 : stats.average();
+    }
+
+    synchronized RatingSummary summary(String paperId) {
+        Stats stats = statsByPaper.get(paperId);
+        return stats == null ? new Stats(paperId).toSummary() : stats.toSummary();
+    }
+
+    /**
+     * Highest-rated papers, best first; papers without reviews are not included
+     */
+    synchronized List<RatingSummary> top(int k) {
+        List<RatingSummary> result = new ArrayList<>(Math.min(k, ranking.size()));
+        for (Stats stats : ranking) {
+            if (result.size() >= k) {
+                break;
+            }
+            result.add(stats.toSummary());
+        }
+        return result;
+    }
+}
@@ -2,8 +2,11 @@ package service;
 
 import model.*;
 import storage.DataStorage;
+import storage.Page;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
@@ -11,15 +14,35 @@ import java.util.stream.Collectors;
  * Demonstrates separation of concerns by isolating review management logic.
  */
 public class ReviewService {
+    private static final String PAPER_INDEX = "paper";
+    private static final String REVIEWER_INDEX = "reviewer";
+    private static final String PAPER_REVIEWER_INDEX = "paperReviewer";
+    private static final String SUBMISSION_DATE_INDEX = "submissionDate";
+    private static final int MAX_UPDATE_ATTEMPTS = 16;
+
     private final DataStorage<Review> reviewStorage;
+    private final PaperService paperService;
     private final UserService userService;
+    private final RatingAggregates ratings;
     private Admin Admin;
 
     public ReviewService(DataStorage<Review> reviewStorage,
                          PaperService paperService,
                          UserService userService) {
         this.reviewStorage = reviewStorage;
+        this.paperService = paperService;
         this.userService = userService;
+        // paperId -> reviews, reviewerId -> reviews, and at most one review per (paper, reviewer)
+        reviewStorage.createIndex(PAPER_INDEX, review -> List.of(review.getPaperId()));
+        reviewStorage.createIndex(REVIEWER_INDEX, review -> List.of(review.getReviewerId()));
+        reviewStorage.createUniqueIndex(PAPER_REVIEWER_INDEX,
+                review -> paperReviewerKey(review.getPaperId(), review.getReviewerId()));
+        reviewStorage.createSortedIndex(SUBMISSION_DATE_INDEX, review -> SortKeys.date(review.getSubmissionDate()));
+        this.ratings = new RatingAggregates(reviewStorage.findAll());
+    }
+
+    private static String paperReviewerKey(String paperId, String reviewerId) {
+        return paperId + ":" + reviewerId;
     }
 
     /**
@@ -27,7 +50,7 @@ public class ReviewService {
      */
     public boolean submitReview(String paperId, String reviewerId,
                                 int rating, String comments) {
-        Optional<Paper> paperOpt = PaperService.findPaperById(paperId);
+        Optional<Paper> paperOpt = paperService.findPaperById(paperId);
         Optional<User> reviewerOpt = userService.findUserById(reviewerId);
 
         if (paperOpt.isPresent() && reviewerOpt.isPresent()) {
@@ -35,17 +58,16 @@ public class ReviewService {
             User reviewer = reviewerOpt.get();
 
             // Check if the reviewer is assigned to this paper
-            if (!paper.getReviewerIds().contains(reviewerId)) {
-                return false;
-            }
-
-            // Check if the reviewer has already submitted a review for this paper
-            if (getReviewByPaperAndReviewer(paperId, reviewerId).isPresent()) {
+            if (!paper.hasReviewer(reviewerId)) {
                 return false;
             }
 
+            // Save fails if the reviewer has already submitted a review for this paper
             Review review = new Review(paperId, reviewerId, reviewer.getName(), rating, comments);
-            return reviewStorage.save(review);
+            if (reviewStorage.save(review)) {
+                ratings.add(review);
+                return true;
+            }
         }
 
         return false;
@@ -65,6 +87,15 @@ public class ReviewService {
         return reviewStorage.findAll();
     }
 
+    /**
+     * Get one page of reviews, oldest first
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum number of reviews on the page
+     */
+    public Page<Review> getReviewsPage(String cursor, int limit) {
+        return reviewStorage.findPage(cursor, limit, SUBMISSION_DATE_INDEX);
+    }
+
     /**
      * Get reviews for a specific paper
      * For authors, returns blinded reviews
@@ -72,14 +103,12 @@ public class ReviewService {
      */
 
     public List<String> getReviewersForPaper(String paperId) {
-        Optional<Paper> paperOpt = PaperService.findPaperById(paperId);
+        Optional<Paper> paperOpt = paperService.findPaperById(paperId);
         return paperOpt.map(Paper::getReviewerIds).orElseGet(List::of);
     }
 
     public List<Review> getReviewsForPaper(String paperId) {
-        List<Review> reviews = reviewStorage.findAll().stream()
-                .filter(review -> review.getPaperId().equals(paperId))
-                .collect(Collectors.toList());
+        List<Review> reviews = reviewStorage.findWhere(reviewStorage.indexEquals(PAPER_INDEX, paperId));
 
         // If not admin, return blinded copies
 
@@ -92,55 +121,99 @@ public class ReviewService {
         return reviews;
     }
 
+    /**
+     * Get the full (not blinded) reviews of a paper
+     */
+    List<Review> findReviewsForPaper(String paperId) {
+        return reviewStorage.findWhere(reviewStorage.indexEquals(PAPER_INDEX, paperId));
+    }
+
     /**
      * Get reviews submitted by a specific reviewer
      */
     public List<Review> getReviewsByReviewer(String reviewerId) {
-        return reviewStorage.findAll().stream()
-                .filter(review -> review.getReviewerId().equals(reviewerId))
-                .collect(Collectors.toList());
+        return reviewStorage.findWhere(reviewStorage.indexEquals(REVIEWER_INDEX, reviewerId));
     }
 
     /**
      * Find a review by paper ID and reviewer ID
      */
     public Optional<Review> getReviewByPaperAndReviewer(String paperId, String reviewerId) {
-        return reviewStorage.findAll().stream()
-                .filter(review -> review.getPaperId().equals(paperId) &&
-                        review.getReviewerId().equals(reviewerId))
-                .findFirst();
+        return reviewStorage.findFirst(
+                reviewStorage.indexEquals(PAPER_REVIEWER_INDEX, paperReviewerKey(paperId, reviewerId)));
     }
 
     /**
-     * Update review information
+     * Update review information without a global lock.
+     * Reviews are immutable, so the change builds a replacement from the current review;
+     * it is only stored if nobody else updated the review in the meantime, otherwise
+     * the change is retried on fresh data.
+     * @param change Builds the replacement (with the same review ID), or returns null to abandon it
+     * @return true if the replacement was stored
      */
-    public boolean updateReview(Review review) {
-        return reviewStorage.update(review);
+    public boolean updateReview(String reviewId, UnaryOperator<Review> change) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Optional<Review> reviewOpt = reviewStorage.findById(reviewId);
+            if (reviewOpt.isEmpty()) {
+                return false;
+            }
+
+            long expected = reviewOpt.get().getVersion();
+            Review updated = change.apply(reviewOpt.get());
+            if (updated == null || !updated.getReviewId().equals(reviewId)) {
+                return false;
+            }
+
+            if (reviewStorage.compareAndUpdate(expected, updated)) {
+                ratings.add(updated);
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * Delete a review by its ID
      */
     public boolean deleteReview(String reviewId) {
-        return reviewStorage.deleteById(reviewId);
+        if (reviewStorage.deleteById(reviewId)) {
+            ratings.remove(reviewId);
+            return true;
+        }
+        return false;
     }
 
     /**
-     * Calculate the average rating for a paper
+     * Delete several reviews with a single write; either all are deleted or none,
+     * if any of them no longer exists
      */
-    public double getAveragePaperRating(String paperId) {
-        List<Review> reviews = reviewStorage.findAll().stream()
-                .filter(review -> review.getPaperId().equals(paperId))
-                .toList();
-
-        if (reviews.isEmpty()) {
-            return 0.0;
+    public boolean deleteReviews(Collection<String> reviewIds) {
+        if (reviewStorage.deleteAll(reviewIds)) {
+            reviewIds.forEach(ratings::remove);
+            return true;
         }
+        return false;
+    }
 
-        int sum = reviews.stream()
-                .mapToInt(Review::getRating)
-                .sum();
+    /**
+     * Get the average rating for a paper
+     */
+    public double getAveragePaperRating(String paperId) {
+        return ratings.average(paperId);
+    }
+
+    /**
+     * Get the rating count, sum, min, max and histogram for a paper
+     */
+    public RatingSummary getPaperRatingSummary(String paperId) {
+        return ratings.summary(paperId);
+    }
 
-        return (double) sum / reviews.size();
+    /**
+     * Get the papers with the highest average rating, best first
+     * @param k Maximum number of papers to return
+     */
+    public List<RatingSummary> getTopRatedPapers(int k) {
+        return ratings.top(k);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Builds the string keys of the sorted indexes, so that string order matches the intended order
+ */
+final class SortKeys {
+    // Fixed width, unlike LocalDateTime.toString() which drops zero seconds
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSSSSS");
+
+    private SortKeys() {
+    }
+
+    /**
+     * Case-insensitive order for names and titles
+     */
+    static String text(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Chronological order for dates
+     */
+    static String date(LocalDateTime value) {
+        return value == null ? null : value.format(DATE_FORMAT);
+    }
+}
@@ -0,0 +1,97 @@
+package service;
+
+import model.Paper;
+import model.ReviewStatus;
+
+import java.util.*;
+
+/**
+ * Paper IDs partitioned by review status, each bucket kept sorted by title.
+ * A status change moves the paper from one bucket to the other under a single lock,
+ * so a paper is never seen in two buckets or in none, and per-status counts are O(1).
+ */
+class StatusBuckets {
+
+    /**
+     * Where a paper currently sits, and the version of the paper that put it there
+     */
+    private record Placement(ReviewStatus status, String entry, long version) {
+    }
+
+    private final Map<ReviewStatus, NavigableMap<String, String>> buckets = new EnumMap<>(ReviewStatus.class);
+    private final Map<String, Placement> placements = new HashMap<>();
+    private final int[] counts = new int[ReviewStatus.values().length];
+
+    StatusBuckets() {
+        for (ReviewStatus status : ReviewStatus.values()) {
+            buckets.put(status, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Sort entry of a paper: its title, with the ID appended to keep equal titles apart
+     */
+    private static String entryOf(Paper paper) {
+        String title = SortKeys.text(paper.getTitle());
+        return (title == null ? "" : title) + '\0' + paper.getPaperId();
+    }
+
+    /**
+     * Place a new paper, or move a stored paper after its status or title changed.
+     * Papers older than the one already placed are ignored, so concurrent updates
+     * finishing out of order cannot move a paper back.
+     */
+    synchronized void put(Paper paper) {
+        Placement previous = placements.get(paper.getPaperId());
+        if (previous != null && previous.version() > paper.getVersion()) {
+            return;
+        }
+
+        Placement placement = new Placement(paper.getStatus(), entryOf(paper), paper.getVersion());
+        if (previous != null) {
+            if (previous.status() == placement.status() && previous.entry().equals(placement.entry())) {
+                placements.put(paper.getPaperId(), placement);
+                return;
+            }
+            unplace(previous);
+        }
+
+        buckets.get(placement.status()).put(placement.entry(), paper.getPaperId());
+        counts[placement.status().ordinal()]++;
+        placements.put(paper.getPaperId(), placement);
+    }
+
+    synchronized void remove(String paperId) {
+        Placement previous = placements.remove(paperId);
+        if (previous != null) {
+            unplace(previous);
+        }
+    }
+
+    private void unplace(Placement placement) {
+        buckets.get(placement.status()).remove(placement.entry());
+        counts[placement.status().ordinal()]--;
+    }
+
+    /**
+     * IDs of the papers with a status, in title order
+     */
+    synchronized List<String> ids(ReviewStatus status) {
+        return new ArrayList<>(buckets.get(status).values());
+    }
+
+    synchronized int count(ReviewStatus status) {
+        return counts[status.ordinal()];
+    }
+
+    /**
+     * Number of papers in every status, including statuses without papers
+     */
+    synchronized Map<ReviewStatus, Integer> counts() {
+        Map<ReviewStatus, Integer> result = new EnumMap<>(ReviewStatus.class);
+        for (ReviewStatus status : ReviewStatus.values()) {
+            result.put(status, counts[status.ordinal()]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,269 @@
+package service;
+
+import model.Paper;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over paper title, abstract, keywords and optionally content,
+ * ranked with BM25.
+ *
+ * Documents are numbered by a DocTable, so postings are only ever appended in increasing
+ * order and are kept as primitive int arrays. Updating or deleting a paper just marks its
+ * old document as deleted; once deleted documents make up half the index, the postings are
+ * compacted and the document numbers renumbered.
+ *
+ * Whole keywords are also kept in a dictionary of their own, so a keyword substring search
+ * scans the distinct keywords instead of every paper.
+ */
+class TextIndex {
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Title and keyword matches count more than matches in the body text
+    private static final int TITLE_WEIGHT = 3;
+    private static final int KEYWORD_WEIGHT = 2;
+    private static final int TEXT_WEIGHT = 1;
+
+    private final boolean includeContent;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Term -> documents containing it, each with the term's weighted frequency
+    private final Map<String, DocTable.DocList> postings = new HashMap<>();
+    // Lowercase keyword (as entered, not tokenized) -> documents listing it
+    private final Map<String, DocTable.DocList> keywordDocs = new HashMap<>();
+    private final DocTable docs = new DocTable();
+    private int[] docLength = new int[16];
+    private long liveLength;    // total weighted length of the live documents
+
+    /**
+     * Constructor
+     * @param includeContent Whether the full paper content is indexed as well
+     */
+    TextIndex(boolean includeContent) {
+        this.includeContent = includeContent;
+    }
+
+    /**
+     * Split text into lowercase letter/digit runs
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Index a new paper, or re-index one whose text may have changed
+     */
+    void put(Paper paper) {
+        Map<String, Integer> freqs = new HashMap<>();
+        count(freqs, paper.getTitle(), TITLE_WEIGHT);
+        for (String keyword : paper.getKeywords()) {
+            count(freqs, keyword, KEYWORD_WEIGHT);
+        }
+        count(freqs, paper.getAbstractText(), TEXT_WEIGHT);
+        if (includeContent) {
+            count(freqs, paper.getContent(), TEXT_WEIGHT);
+        }
+
+        int length = 0;
+        for (int freq : freqs.values()) {
+            length += freq;
+        }
+        Set<String> keywords = new HashSet<>();
+        for (String keyword : paper.getKeywords()) {
+            keywords.add(keyword.toLowerCase(Locale.ROOT));
+        }
+
+        lock.writeLock().lock();
+        try {
+            delete(paper.getPaperId());
+
+            int doc = docs.add(paper.getPaperId());
+            if (docLength.length < docs.capacity()) {
+                docLength = Arrays.copyOf(docLength, docs.capacity());
+            }
+            docLength[doc] = length;
+            liveLength += length;
+
+            for (Map.Entry<String, Integer> entry : freqs.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new DocTable.DocList(true)).add(doc, entry.getValue());
+            }
+            for (String keyword : keywords) {
+                keywordDocs.computeIfAbsent(keyword, k -> new DocTable.DocList(false)).add(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void count(Map<String, Integer> freqs, String text, int weight) {
+        for (String token : tokenize(text)) {
+            freqs.merge(token, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * Stop returning a paper from searches
+     */
+    void remove(String paperId) {
+        lock.writeLock().lock();
+        try {
+            delete(paperId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mark the current document of a paper as deleted; caller holds the write lock
+     */
+    private void delete(String paperId) {
+        int doc = docs.delete(paperId);
+        if (doc < 0) {
+            return;
+        }
+        liveLength -= docLength[doc];
+
+        if (docs.needsCompaction()) {
+            compact();
+        }
+    }
+
+    /**
+     * Drop deleted documents from every posting list and renumber the live ones
+     */
+    private void compact() {
+        int[] renumbered = docs.compact();
+        for (int doc = 0; doc < renumbered.length; doc++) {
+            if (renumbered[doc] >= 0) {
+                docLength[renumbered[doc]] = docLength[doc];
+            }
+        }
+        DocTable.compact(postings, renumbered);
+        DocTable.compact(keywordDocs, renumbered);
+    }
+
+    /**
+     * Papers with a keyword containing the query (case-insensitive), in the order they were indexed
+     */
+    List<String> findByKeyword(String query) {
+        String needle = query == null ? "" : query.toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            BitSet matched = new BitSet(docs.docCount());
+            for (Map.Entry<String, DocTable.DocList> entry : keywordDocs.entrySet()) {
+                if (entry.getKey().contains(needle)) {
+                    DocTable.DocList list = entry.getValue();
+                    for (int i = 0; i < list.size; i++) {
+                        matched.set(list.docs[i]);
+                    }
+                }
+            }
+
+            List<String> result = new ArrayList<>(matched.cardinality());
+            for (int doc = matched.nextSetBit(0); doc >= 0; doc = matched.nextSetBit(doc + 1)) {
+                String paperId = docs.paperOf(doc);
+                if (paperId != null) {
+                    result.add(paperId);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Papers matching any term of the query, best BM25 score first
+     * @param limit Maximum number of paper IDs to return
+     */
+    List<String> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int liveDocs = docs.liveDocs();
+            if (liveDocs == 0) {
+                return List.of();
+            }
+
+            double avgLength = Math.max(1.0, (double) liveLength / liveDocs);
+            double[] scores = new double[docs.docCount()];
+            int[] matched = new int[Math.min(docs.docCount(), 1024)];
+            int matchCount = 0;
+
+            for (String term : terms) {
+                DocTable.DocList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+
+                // Document frequency includes deleted documents until the next compaction
+                double idf = Math.log(1 + Math.max(0, liveDocs - list.size + 0.5) / (list.size + 0.5));
+
+                for (int i = 0; i < list.size; i++) {
+                    int doc = list.docs[i];
+                    if (docs.paperOf(doc) == null) {
+                        continue;
+                    }
+                    if (scores[doc] == 0) {
+                        if (matchCount == matched.length) {
+                            matched = Arrays.copyOf(matched, matchCount * 2);
+                        }
+                        matched[matchCount++] = doc;
+                    }
+                    double tf = list.values[i];
+                    double norm = K1 * (1 - B + B * docLength[doc] / avgLength);
+                    // Never exactly 0, so a match is not mistaken for an unseen document
+                    scores[doc] += Math.max(Double.MIN_NORMAL, idf * tf * (K1 + 1) / (tf + norm));
+                }
+            }
+
+            return top(scores, matched, matchCount, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The best-scoring documents, found with a bounded min-heap; caller holds the read lock
+     */
+    private List<String> top(double[] scores, int[] matched, int matchCount, int limit) {
+        // Lowest score at the head; on equal scores the older document ranks first
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(limit, matchCount) + 1,
+                (a, b) -> scores[a] != scores[b] ? Double.compare(scores[a], scores[b]) : Integer.compare(b, a));
+
+        for (int i = 0; i < matchCount; i++) {
+            heap.add(matched[i]);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        String[] result = new String[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = docs.paperOf(heap.poll());
+        }
+        return Arrays.asList(result);
+    }
+}
@@ -0,0 +1,232 @@
+package service;
+
+import model.Paper;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index for the admin "paper ID or title" lookups.
+ * Paper IDs are kept in sorted order so an ID prefix is a range scan, and lowercase titles
+ * are split into trigrams so a title substring only has to be checked against the titles
+ * sharing all of its trigrams.
+ *
+ * Documents are numbered by a DocTable, as in TextIndex, so the trigram lists stay sorted
+ * int arrays; removed titles are skipped until the lists are compacted.
+ */
+class TitleLookup {
+    private static final int GRAM = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, String> idsByLowerId = new TreeMap<>();
+    private final Map<String, DocTable.DocList> grams = new HashMap<>();
+    private final DocTable docs = new DocTable();
+    private String[] titleByDoc = new String[16];  // lowercase, null once the document is removed
+
+    /**
+     * Trigrams of a lowercase string, without duplicates
+     */
+    private static Set<String> gramsOf(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static String fold(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Index a new paper, or re-index one whose title may have changed
+     */
+    void put(Paper paper) {
+        String title = fold(paper.getTitle());
+
+        lock.writeLock().lock();
+        try {
+            delete(paper.getPaperId());
+
+            int doc = docs.add(paper.getPaperId());
+            if (titleByDoc.length < docs.capacity()) {
+                titleByDoc = Arrays.copyOf(titleByDoc, docs.capacity());
+            }
+            titleByDoc[doc] = title;
+            idsByLowerId.put(fold(paper.getPaperId()), paper.getPaperId());
+
+            for (String gram : gramsOf(title)) {
+                grams.computeIfAbsent(gram, g -> new DocTable.DocList(false)).add(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stop returning a paper from lookups
+     */
+    void remove(String paperId) {
+        lock.writeLock().lock();
+        try {
+            delete(paperId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mark the current document of a paper as removed; caller holds the write lock
+     */
+    private void delete(String paperId) {
+        int doc = docs.delete(paperId);
+        if (doc < 0) {
+            return;
+        }
+        idsByLowerId.remove(fold(paperId));
+        titleByDoc[doc] = null;
+
+        if (docs.needsCompaction()) {
+            compact();
+        }
+    }
+
+    /**
+     * Drop removed documents from every trigram list and renumber the live ones
+     */
+    private void compact() {
+        int[] renumbered = docs.compact();
+        for (int doc = 0; doc < renumbered.length; doc++) {
+            if (renumbered[doc] >= 0) {
+                titleByDoc[renumbered[doc]] = titleByDoc[doc];
+            }
+        }
+        Arrays.fill(titleByDoc, docs.docCount(), renumbered.length, null);
+        DocTable.compact(grams, renumbered);
+    }
+
+    /**
+     * Papers whose ID equals or starts with the query, followed by papers whose title
+     * contains it (in title order). Matching is case-insensitive. An empty query matches
+     * every title, so it lists all papers in title order.
+     * @param limit Maximum number of paper IDs to return
+     */
+    List<String> lookup(String query, int limit) {
+        String needle = fold(query).trim();
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<String> result = new LinkedHashSet<>();
+
+            // Exact ID first, then other IDs with the prefix; every ID starts with an empty query
+            if (!needle.isEmpty()) {
+                String exact = idsByLowerId.get(needle);
+                if (exact != null) {
+                    result.add(exact);
+                }
+                for (Map.Entry<String, String> entry : idsByLowerId.tailMap(needle, false).entrySet()) {
+                    if (result.size() >= limit || !entry.getKey().startsWith(needle)) {
+                        break;
+                    }
+                    result.add(entry.getValue());
+                }
+            }
+
+            if (result.size() < limit) {
+                for (int doc : firstByTitle(titleMatches(needle), limit)) {
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                    result.add(docs.paperOf(doc));
+                }
+            }
+            return new ArrayList<>(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The documents with the alphabetically first titles, in title order.
+     * Uses a bounded max-heap so a query matching most titles is not fully sorted.
+     */
+    private List<Integer> firstByTitle(List<Integer> docs, int limit) {
+        Comparator<Integer> byTitle = Comparator.comparing(doc -> titleByDoc[doc]);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(limit, docs.size()) + 1, byTitle.reversed());
+        for (int doc : docs) {
+            heap.add(doc);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        List<Integer> result = new ArrayList<>(heap);
+        result.sort(byTitle);
+        return result;
+    }
+
+    /**
+     * Documents whose title contains the needle; caller holds the read lock
+     */
+    private List<Integer> titleMatches(String needle) {
+        List<Integer> matches = new ArrayList<>();
+
+        // Too short for a trigram: check every title
+        if (needle.length() < GRAM) {
+            for (int doc = 0; doc < docs.docCount(); doc++) {
+                if (titleByDoc[doc] != null && titleByDoc[doc].contains(needle)) {
+                    matches.add(doc);
+                }
+            }
+            return matches;
+        }
+
+        // Intersect the trigram lists, rarest first
+        List<DocTable.DocList> lists = new ArrayList<>();
+        for (String gram : gramsOf(needle)) {
+            DocTable.DocList list = grams.get(gram);
+            if (list == null) {
+                return matches;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        int[] candidates = Arrays.copyOf(lists.get(0).docs, lists.get(0).size);
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = intersect(candidates, count, lists.get(i));
+        }
+
+        // Shared trigrams don't guarantee the trigrams are adjacent, so confirm the match
+        for (int i = 0; i < count; i++) {
+            int doc = candidates[i];
+            if (titleByDoc[doc] != null && titleByDoc[doc].contains(needle)) {
+                matches.add(doc);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Keep only the candidates also present in the list, both being sorted
+     * @return Number of candidates left at the start of the array
+     */
+    private static int intersect(int[] candidates, int count, DocTable.DocList list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < list.size; i++) {
+            while (j < list.size && list.docs[j] < candidates[i]) {
+                j++;
+            }
+            if (j < list.size && list.docs[j] == candidates[i]) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        return kept;
+    }
+}
@@ -2,8 +2,11 @@ package service;
 
 import model.*;
 import storage.DataStorage;
+import storage.Page;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.lang.ScopedValue;
 
@@ -12,10 +15,28 @@ import java.lang.ScopedValue;
  * Demonstrates separation of concerns by isolating user management logic.
  */
 public class UserService {
+    public static final String SORT_BY_NAME = "name";
+
+    private static final String EMAIL_INDEX = "email";
+    private static final String TYPE_INDEX = "type";
+    private static final int MAX_UPDATE_ATTEMPTS = 16;
+
     private final DataStorage<User> userStorage;
 
     public UserService(DataStorage<User> userStorage) {
         this.userStorage = userStorage;
+        // Emails are unique; the storage rejects a second user with the same address
+        this.userStorage.createUniqueIndex(EMAIL_INDEX, user -> normalizeEmail(user.getEmail()));
+        // Student / Faculty / Admin, so listing one kind of user doesn't scan the others
+        this.userStorage.createIndex(TYPE_INDEX, user -> List.of(user.getClass().getSimpleName()));
+        this.userStorage.createSortedIndex(SORT_BY_NAME, user -> SortKeys.text(user.getName()));
+    }
+
+    /**
+     * Emails are compared case-insensitively and without surrounding whitespace
+     */
+    static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -23,11 +44,7 @@ public class UserService {
      */
     public boolean registerStudent(String name, String email, String password,
                                    String department, String studentId) {
-        // Check if email is already registered
-        if (findUserByEmail(email).isPresent()) {
-            return false;
-        }
-
+        // Save fails if the email is already registered
         Student student = new Student(name, email, password, department, studentId);
         return userStorage.save(student);
     }
@@ -37,11 +54,7 @@ public class UserService {
      */
     public boolean registerFaculty(String name, String email, String password,
                                    String department, String position) {
-        // Check if email is already registered
-        if (findUserByEmail(email).isPresent()) {
-            return false;
-        }
-
+        // Save fails if the email is already registered
         Faculty faculty = new Faculty(name, email, password, department, position);
         return userStorage.save(faculty);
     }
@@ -50,22 +63,24 @@ public class UserService {
      * Register a new admin
      */
     public boolean registerAdmin(String name, String email, String password, String adminLevel) {
-        // Check if email is already registered
-        if (findUserByEmail(email).isPresent()) {
-            return false;
-        }
-
+        // Save fails if the email is already registered
         Admin admin = new Admin(name, email, password, adminLevel);
         return userStorage.save(admin);
     }
 
+    /**
+     * Register several users at once with a single write, e.g. for a bulk import.
+     * Either all are registered or none, if any of the emails is already registered.
+     */
+    public boolean registerAll(List<User> users) {
+        return userStorage.saveAll(users);
+    }
+
     /**
      * Find a user by their email address
      */
     public Optional<User> findUserByEmail(String email) {
-        return userStorage.findAll().stream()
-                .filter(user -> user.getEmail().equals(email))
-                .findFirst();
+        return userStorage.findFirst(userStorage.indexEquals(EMAIL_INDEX, normalizeEmail(email)));
     }
 
     /**
@@ -82,12 +97,20 @@ public class UserService {
         return userStorage.findAll();
     }
 
+    /**
+     * Get one page of users ordered by name
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum number of users on the page
+     */
+    public Page<User> getUsersPage(String cursor, int limit) {
+        return userStorage.findPage(cursor, limit, SORT_BY_NAME);
+    }
+
     /**
      * Get all students
      */
     public List<Student> getAllStudents() {
-        return userStorage.findAll().stream()
-                .filter(user -> user instanceof Student)
+        return userStorage.findWhere(userStorage.indexEquals(TYPE_INDEX, Student.class.getSimpleName())).stream()
                 .map(user -> (Student) user)
                 .collect(Collectors.toList());
     }
@@ -96,8 +119,7 @@ public class UserService {
      * Get all faculty members
      */
     public List<Faculty> getAllFaculty() {
-        return userStorage.findAll().stream()
-                .filter(user -> user instanceof Faculty)
+        return userStorage.findWhere(userStorage.indexEquals(TYPE_INDEX, Faculty.class.getSimpleName())).stream()
                 .map(user -> (Faculty) user)
                 .collect(Collectors.toList());
     }
@@ -106,21 +128,41 @@ public class UserService {
      * Get all admins
      */
     public List<Admin> getAllAdmins() {
-        return userStorage.findAll().stream()
-                .filter(user -> user instanceof Admin)
+        return userStorage.findWhere(userStorage.indexEquals(TYPE_INDEX, Admin.class.getSimpleName())).stream()
                 .map(user -> (Admin) user)
                 .collect(Collectors.toList());
     }
 
     /**
-     * Update user information
+     * Update user information without a global lock.
+     * The change is applied to a private copy which is only stored if nobody else
+     * updated the user in the meantime; otherwise the change is retried on fresh data.
+     * @param change Applies the modification, returning false to abandon it
+     * @return true if the modified user was stored
      */
-    public void updateUser(User user) {
-        userStorage.update(user);
+    public boolean updateUser(String userId, Predicate<User> change) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Optional<User> userOpt = userStorage.findById(userId);
+            if (userOpt.isEmpty()) {
+                return false;
+            }
+
+            long expected = userOpt.get().getVersion();
+            User updated = userOpt.get().copy();
+            if (!change.test(updated)) {
+                return false;
+            }
+
+            if (userStorage.compareAndUpdate(expected, updated)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Delete a user by their ID
+     * Delete a user by their ID.
+     * Their papers, reviews and reviewer assignments are left in place; CascadeDelete removes them too.
      */
     public boolean deleteUser(String userId) {
         return userStorage.deleteById(userId);
@@ -0,0 +1,234 @@
+package storage;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * DataStorage decorator keeping a bounded number of recently or frequently used objects
+ * in memory in front of another storage, for point lookups by ID.
+ * Writes go through to the wrapped storage first and then drop the cached copy; only reads
+ * fill the cache. Two writes of the same object can finish in either order, so caching the
+ * written object could leave the older one cached. Queries other than findById are passed
+ * straight to the wrapped storage.
+ * @param <T> Type of objects to store
+ */
+public class CachingDataStorage<T> implements DataStorage<T> {
+
+    /**
+     * Which object is evicted when the cache is full
+     */
+    public enum EvictionPolicy {
+        LRU,       // least recently used
+        TINY_LFU   // W-TinyLFU: keeps frequently used objects even through bursts of one-off reads
+    }
+
+    /**
+     * Cache counters since the storage was created
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Cache{hits=%d, misses=%d, evictions=%d, size=%d, hitRate=%.1f%%}",
+                    hits, misses, evictions, size, hitRate() * 100);
+        }
+    }
+
+    private final DataStorage<T> delegate;
+    private final Function<T, String> idExtractor;
+    private final EntityCache<T> cache;
+    private long hits;
+    private long misses;
+    private long writes;  // bumped by every write, so a slow miss never caches a stale object
+
+    /**
+     * Constructor
+     * @param delegate Storage holding the data
+     * @param idExtractor Function returning the unique ID of a stored object
+     * @param capacity Maximum number of objects kept in the cache
+     * @param policy Which object is evicted when the cache is full
+     */
+    public CachingDataStorage(DataStorage<T> delegate, Function<T, String> idExtractor,
+                              int capacity, EvictionPolicy policy) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.idExtractor = Objects.requireNonNull(idExtractor);
+        this.cache = EntityCache.create(policy, capacity);
+    }
+
+    @Override
+    public boolean save(T object) {
+        boolean saved = delegate.save(object);
+        invalidate(idExtractor.apply(object));
+        return saved;
+    }
+
+    @Override
+    public boolean saveAll(Collection<T> objects) {
+        boolean saved = delegate.saveAll(objects);
+        for (T object : objects) {
+            invalidate(idExtractor.apply(object));
+        }
+        return saved;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        long writesBefore;
+        synchronized (cache) {
+            T cached = cache.get(id);
+            if (cached != null) {
+                hits++;
+                return Optional.of(cached);
+            }
+            misses++;
+            writesBefore = writes;
+        }
+
+        Optional<T> loaded = delegate.findById(id);
+        if (loaded.isPresent()) {
+            synchronized (cache) {
+                // A write in the meantime may have replaced what we just read
+                if (writes == writesBefore) {
+                    cache.put(id, loaded.get());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public List<T> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return delegate.stream();
+    }
+
+    @Override
+    public List<T> findWhere(Predicate<T> predicate) {
+        return delegate.findWhere(predicate);
+    }
+
+    @Override
+    public long count(Predicate<T> predicate) {
+        return delegate.count(predicate);
+    }
+
+    @Override
+    public Optional<T> findFirst(Predicate<T> predicate) {
+        return delegate.findFirst(predicate);
+    }
+
+    @Override
+    public boolean update(T object) {
+        boolean written = delegate.update(object);
+        invalidate(idExtractor.apply(object));
+        return written;
+    }
+
+    @Override
+    public boolean compareAndUpdate(long expectedVersion, T newValue) {
+        boolean written = delegate.compareAndUpdate(expectedVersion, newValue);
+        invalidate(idExtractor.apply(newValue));
+        return written;
+    }
+
+    @Override
+    public boolean updateAll(Collection<T> objects) {
+        boolean written = delegate.updateAll(objects);
+        for (T object : objects) {
+            invalidate(idExtractor.apply(object));
+        }
+        return written;
+    }
+
+    @Override
+    public boolean deleteAll(Collection<String> ids) {
+        boolean deleted = delegate.deleteAll(ids);
+        ids.forEach(this::invalidate);
+        return deleted;
+    }
+
+    @Override
+    public boolean deleteById(String id) {
+        boolean deleted = delegate.deleteById(id);
+        invalidate(id);
+        return deleted;
+    }
+
+    /**
+     * Drop the cached copy of an object, e.g. after it was changed behind the cache's back
+     */
+    public void invalidate(String id) {
+        synchronized (cache) {
+            writes++;
+            cache.remove(id);
+        }
+    }
+
+    @Override
+    public void createUniqueIndex(String name, Function<T, String> keyExtractor) {
+        delegate.createUniqueIndex(name, keyExtractor);
+    }
+
+    @Override
+    public Optional<T> findByUniqueIndex(String name, String key) {
+        return delegate.findByUniqueIndex(name, key);
+    }
+
+    @Override
+    public void createIndex(String name, Function<T, ? extends Collection<String>> keysExtractor) {
+        delegate.createIndex(name, keysExtractor);
+    }
+
+    @Override
+    public List<T> findByIndex(String name, String key) {
+        return delegate.findByIndex(name, key);
+    }
+
+    @Override
+    public void createSortedIndex(String name, Function<T, String> keyExtractor) {
+        delegate.createSortedIndex(name, keyExtractor);
+    }
+
+    @Override
+    public Page<T> findPage(String cursor, int limit, String sortKey) {
+        return delegate.findPage(cursor, limit, sortKey);
+    }
+
+    @Override
+    public IndexPredicate<T> indexEquals(String name, String key) {
+        return delegate.indexEquals(name, key);
+    }
+
+    @Override
+    public boolean saveAll() {
+        return delegate.saveAll();
+    }
+
+    @Override
+    public void loadAll() {
+        delegate.loadAll();
+        synchronized (cache) {
+            writes++;
+            cache.clear();
+        }
+    }
+
+    /**
+     * Hit, miss and eviction counts and the current number of cached objects
+     */
+    public Stats getStats() {
+        synchronized (cache) {
+            return new Stats(hits, misses, cache.evictions(), cache.size());
+        }
+    }
+}
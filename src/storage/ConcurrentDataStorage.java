@@ -0,0 +1,349 @@
+package storage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe implementation of DataStorage for serving many sessions at once.
+ * Reads go straight to a ConcurrentHashMap without locking. Writes take a lock chosen
+ * by the object's ID (lock striping), so writes to different objects run in parallel
+ * while save/update/delete on the same object are applied one at a time.
+ *
+ * Optionally writes through to a backing storage (e.g. a FileStorage) for persistence;
+ * the backing storage is then only used for writing and for the initial load. A write only
+ * claims its unique keys before going to the backing storage and is published in memory
+ * once the backing storage accepted it, so readers never see a write that is rejected.
+ * @param <T> Type of objects to store
+ */
+public final class ConcurrentDataStorage<T> implements DataStorage<T> {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Map<String, T> objects = new ConcurrentHashMap<>();
+    private final Function<T, String> idExtractor;
+    private final SecondaryIndexes<T> indexes = new SecondaryIndexes<>();
+    private final ReadSnapshot<T> snapshot = new ReadSnapshot<>();
+    private final ReentrantLock[] locks;
+    private final DataStorage<T> backing;  // null for memory-only storage
+
+    /**
+     * Constructor for memory-only storage
+     * @param idExtractor Function returning the unique ID of a stored object
+     */
+    public ConcurrentDataStorage(Function<T, String> idExtractor) {
+        this(idExtractor, null);
+    }
+
+    /**
+     * Constructor
+     * @param idExtractor Function returning the unique ID of a stored object
+     * @param backing Storage that receives every write, or null for memory-only storage
+     */
+    public ConcurrentDataStorage(Function<T, String> idExtractor, DataStorage<T> backing) {
+        this.idExtractor = Objects.requireNonNull(idExtractor);
+        this.backing = backing;
+        this.locks = new ReentrantLock[DEFAULT_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        loadAll();
+    }
+
+    /**
+     * Lock guarding all writes to the given ID
+     */
+    private ReentrantLock lockFor(String id) {
+        return locks[stripeOf(id)];
+    }
+
+    private int stripeOf(String id) {
+        int hash = id.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & (locks.length - 1);
+    }
+
+    @Override
+    public boolean save(T object) {
+        String id = idExtractor.apply(object);
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            if (objects.containsKey(id) || !indexes.reserve(id, object)) {
+                return false;
+            }
+            if (backing != null && !backing.save(object)) {
+                indexes.release(id, object);
+                return false;
+            }
+            objects.put(id, object);
+            indexes.commit(id, object);
+            snapshot.invalidate();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean saveAll(Collection<T> batch) {
+        List<String> ids = batch.stream().map(idExtractor).toList();
+        List<ReentrantLock> held = lockAll(ids);
+        try {
+            Set<String> distinct = new HashSet<>(ids);
+            if (distinct.size() < ids.size() || distinct.stream().anyMatch(objects::containsKey)
+                    || !indexes.reserveAll(batch, idExtractor)) {
+                return false;
+            }
+            if (backing != null && !backing.saveAll(batch)) {
+                indexes.releaseAll(batch, idExtractor);
+                return false;
+            }
+            publish(batch);
+            return true;
+        } finally {
+            held.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    /**
+     * Take the locks for several IDs, always in stripe order so two batches cannot deadlock
+     * @return The locks taken, to be unlocked by the caller
+     */
+    private List<ReentrantLock> lockAll(Collection<String> ids) {
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (String id : ids) {
+            stripes.add(stripeOf(id));
+        }
+        List<ReentrantLock> held = new ArrayList<>(stripes.size());
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+            held.add(locks[stripe]);
+        }
+        return held;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return Optional.ofNullable(objects.get(id));
+    }
+
+    @Override
+    public List<T> findAll() {
+        return snapshot.get(objects.values());  // Immutable and shared until the next write
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return objects.values().stream();  // Weakly consistent, never blocks writers
+    }
+
+    @Override
+    public List<T> findWhere(Predicate<T> predicate) {
+        return select(predicate).toList();
+    }
+
+    @Override
+    public long count(Predicate<T> predicate) {
+        return select(predicate).count();
+    }
+
+    @Override
+    public Optional<T> findFirst(Predicate<T> predicate) {
+        return select(predicate).findFirst();
+    }
+
+    @Override
+    public void createSortedIndex(String name, Function<T, String> keyExtractor) {
+        indexes.addSorted(name, keyExtractor, objects);
+    }
+
+    @Override
+    public Page<T> findPage(String cursor, int limit, String sortKey) {
+        return indexes.page(sortKey, cursor, limit, objects);
+    }
+
+    @Override
+    public IndexPredicate<T> indexEquals(String name, String key) {
+        return indexes.predicate(name, key);
+    }
+
+    private Stream<T> select(Predicate<T> predicate) {
+        return indexes.select(predicate, objects, this::stream);
+    }
+
+    @Override
+    public boolean update(T object) {
+        String id = idExtractor.apply(object);
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            T current = objects.get(id);
+            return current != null && replace(id, current, object);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndUpdate(long expectedVersion, T newValue) {
+        Versions.requireVersioned(newValue);
+        String id = idExtractor.apply(newValue);
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            T current = objects.get(id);
+            return current != null && Versions.of(current) == expectedVersion && replace(id, current, newValue);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Swap in the new object; caller holds the lock for the ID
+     */
+    private boolean replace(String id, T current, T object) {
+        if (!indexes.reserve(id, object)) {
+            return false;
+        }
+        // The backing storage checks and stamps the version itself, so stamp only afterwards
+        if (backing != null && !backing.update(object)) {
+            indexes.release(id, object);
+            return false;
+        }
+        Versions.advance(current, object);
+        objects.put(id, object);
+        indexes.commit(id, object);
+        snapshot.invalidate();
+        return true;
+    }
+
+    /**
+     * Make a batch the backing storage accepted visible; caller holds the locks for its IDs
+     */
+    private void publish(Collection<T> batch) {
+        for (T object : batch) {
+            String id = idExtractor.apply(object);
+            objects.put(id, object);
+            indexes.commit(id, object);
+        }
+        snapshot.invalidate();
+    }
+
+    @Override
+    public boolean updateAll(Collection<T> batch) {
+        List<ReentrantLock> held = lockAll(batch.stream().map(idExtractor).toList());
+        try {
+            // Every object must be stored once, unchanged since it was read (same version)
+            Set<String> ids = new HashSet<>();
+            List<T> previous = new ArrayList<>(batch.size());
+            for (T object : batch) {
+                String id = idExtractor.apply(object);
+                T current = objects.get(id);
+                if (current == null || !ids.add(id) || Versions.of(current) != Versions.of(object)) {
+                    return false;
+                }
+                previous.add(current);
+            }
+            if (!indexes.reserveAll(batch, idExtractor)) {
+                return false;
+            }
+
+            // The backing storage checks and stamps the versions itself, so stamp only afterwards
+            if (backing != null && !backing.updateAll(batch)) {
+                indexes.releaseAll(batch, idExtractor);
+                return false;
+            }
+            Versions.advanceAll(previous, batch);
+            publish(batch);
+            return true;
+        } finally {
+            held.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    @Override
+    public boolean deleteAll(Collection<String> ids) {
+        List<ReentrantLock> held = lockAll(ids);
+        try {
+            // Deletes cannot be rejected in memory once the IDs are known to exist,
+            // so write to the backing storage first and nothing needs undoing
+            if (!objects.keySet().containsAll(ids) || (backing != null && !backing.deleteAll(ids))) {
+                return false;
+            }
+            indexes.removeAll(ids, objects);
+            snapshot.invalidate();
+            return true;
+        } finally {
+            held.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    @Override
+    public boolean deleteById(String id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            if (!objects.containsKey(id) || (backing != null && !backing.deleteById(id))) {
+                return false;
+            }
+            objects.remove(id);
+            indexes.remove(id);
+            snapshot.invalidate();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void createUniqueIndex(String name, Function<T, String> keyExtractor) {
+        indexes.addUnique(name, keyExtractor, objects);
+    }
+
+    @Override
+    public Optional<T> findByUniqueIndex(String name, String key) {
+        String id = indexes.findUnique(name, key);
+        return id != null ? Optional.ofNullable(objects.get(id)) : Optional.empty();
+    }
+
+    @Override
+    public void createIndex(String name, Function<T, ? extends Collection<String>> keysExtractor) {
+        indexes.addMulti(name, keysExtractor, objects);
+    }
+
+    @Override
+    public List<T> findByIndex(String name, String key) {
+        List<T> result = new ArrayList<>();
+        for (String id : indexes.find(name, key)) {
+            T obj = objects.get(id);
+            if (obj != null) {
+                result.add(obj);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean saveAll() {
+        return backing == null || backing.saveAll();
+    }
+
+    /**
+     * Load from the backing storage. Not safe to call while other threads are writing.
+     */
+    @Override
+    public void loadAll() {
+        if (backing == null) {
+            return;
+        }
+        objects.clear();
+        for (T obj : backing.findAll()) {
+            objects.put(idExtractor.apply(obj), obj);
+        }
+        indexes.rebuild(objects);
+        snapshot.invalidate();
+    }
+}
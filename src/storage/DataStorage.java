@@ -1,7 +1,11 @@
 package storage;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Interface for data storage operations.
@@ -16,6 +20,15 @@ public interface DataStorage<T> {
      */
     boolean save(T object);
 
+    /**
+     * Save several new objects at once, with a single persistent write.
+     * Either all of them are saved or none: the batch is rejected if any ID or unique key
+     * is already taken, including by another object of the batch.
+     * @param objects The objects to save
+     * @return true if all objects were saved
+     */
+    boolean saveAll(Collection<T> objects);
+
     /**
      * Find an object by its ID
      * @param id The ID to search for
@@ -25,10 +38,65 @@ public interface DataStorage<T> {
 
     /**
      * Get all objects from storage
-     * @return List of all objects
+     * @return Read-only list of all objects; may be shared between callers until the next write
      */
     List<T> findAll();
 
+    /**
+     * Stream over all objects without copying them into a new list
+     * @return Stream of all objects
+     */
+    Stream<T> stream();
+
+    /**
+     * Find all objects matching a predicate.
+     * Predicates from indexEquals() are answered from the index rather than by a full scan.
+     * @param predicate The condition to match
+     * @return Read-only list of matching objects
+     */
+    List<T> findWhere(Predicate<T> predicate);
+
+    /**
+     * Count the objects matching a predicate
+     * @param predicate The condition to match
+     * @return Number of matching objects
+     */
+    long count(Predicate<T> predicate);
+
+    /**
+     * Find the first object matching a predicate
+     * @param predicate The condition to match
+     * @return An Optional containing the first match if any
+     */
+    Optional<T> findFirst(Predicate<T> predicate);
+
+    /**
+     * Create a sorted index maintained by the storage, used by findPage.
+     * Objects with equal keys are ordered by ID; a null key sorts first.
+     * @param name Name of the index
+     * @param keyExtractor Function returning the sort key of an object
+     */
+    void createSortedIndex(String name, Function<T, String> keyExtractor);
+
+    /**
+     * Get one page of objects in the order of a sorted index
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum number of objects on the page
+     * @param sortKey Name of the sorted index to order by
+     * @return The page, with a cursor for the next page if there is one
+     */
+    Page<T> findPage(String cursor, int limit, String sortKey);
+
+    /**
+     * Predicate matching the objects that have a key in a secondary index.
+     * findWhere, count and findFirst answer it (and anything combined with it through and())
+     * from the index; it can also be used as an ordinary predicate.
+     * @param name Name of the index
+     * @param key The key to match
+     * @return Predicate recognized by this storage
+     */
+    IndexPredicate<T> indexEquals(String name, String key);
+
     /**
      * Update an existing object
      * @param object The object with updated values
@@ -36,6 +104,26 @@ public interface DataStorage<T> {
      */
     boolean update(T object);
 
+    /**
+     * Update an existing object only if it has not changed since it was read.
+     * The object must implement model.Versioned; on success its version is incremented.
+     * @param expectedVersion Version of the object when it was read
+     * @param newValue The object with updated values
+     * @return false if the object no longer exists, its version differs, or a unique key is taken
+     */
+    boolean compareAndUpdate(long expectedVersion, T newValue);
+
+    /**
+     * Replace several existing objects at once, with a single persistent write.
+     * Either all of them are replaced or none: the batch is rejected if any object no longer
+     * exists or would take a unique key of another object, or if a model.Versioned object
+     * was updated since it was read (its version differs, as for compareAndUpdate).
+     * The versions of the stored objects are incremented.
+     * @param objects The objects with updated values
+     * @return true if all objects were replaced
+     */
+    boolean updateAll(Collection<T> objects);
+
     /**
      * Delete an object by its ID
      * @param id The ID of the object to delete
@@ -43,6 +131,47 @@ public interface DataStorage<T> {
      */
     boolean deleteById(String id);
 
+    /**
+     * Delete several objects at once, with a single persistent write.
+     * Either all of them are deleted or none, if any of the IDs is not stored.
+     * @param ids The IDs of the objects to delete
+     * @return true if all objects were deleted
+     */
+    boolean deleteAll(Collection<String> ids);
+
+    /**
+     * Create a unique secondary index maintained by the storage.
+     * Once created, save and update reject objects whose key is already used by another object.
+     * Objects with a null key are not indexed.
+     * @param name Name of the index
+     * @param keyExtractor Function returning the index key of an object
+     */
+    void createUniqueIndex(String name, Function<T, String> keyExtractor);
+
+    /**
+     * Find an object through a unique secondary index
+     * @param name Name of the index
+     * @param key The key to look up
+     * @return An Optional containing the object if found
+     */
+    Optional<T> findByUniqueIndex(String name, String key);
+
+    /**
+     * Create a non-unique secondary index maintained by the storage.
+     * An object may have several keys (e.g. one per assigned reviewer).
+     * @param name Name of the index
+     * @param keysExtractor Function returning the index keys of an object
+     */
+    void createIndex(String name, Function<T, ? extends Collection<String>> keysExtractor);
+
+    /**
+     * Find all objects having a key in a secondary index
+     * @param name Name of the index
+     * @param key The key to look up
+     * @return List of matching objects, in the order they were indexed
+     */
+    List<T> findByIndex(String name, String key);
+
     /**
      * Save all objects in memory to persistent storage
      * @return true if saved successfully
@@ -0,0 +1,275 @@
+package storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded map of cached objects used by CachingDataStorage.
+ * Not thread-safe; the caller serializes access.
+ * @param <T> Type of objects cached
+ */
+abstract class EntityCache<T> {
+    protected final int capacity;
+    protected long evictions;
+
+    EntityCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    static <T> EntityCache<T> create(CachingDataStorage.EvictionPolicy policy, int capacity) {
+        return switch (policy) {
+            case LRU -> new Lru<>(capacity);
+            case TINY_LFU -> new TinyLfu<>(capacity);
+        };
+    }
+
+    /**
+     * The cached object, or null; counts as a use of the entry
+     */
+    abstract T get(String id);
+
+    /**
+     * Cache an object, evicting others if the cache is full.
+     * The policy may also decide not to keep the object at all.
+     */
+    abstract void put(String id, T object);
+
+    abstract void remove(String id);
+
+    abstract void clear();
+
+    abstract int size();
+
+    long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Remove and return the least recently used entry of an access-ordered map
+     */
+    static <T> Map.Entry<String, T> pollEldest(LinkedHashMap<String, T> map) {
+        Iterator<Map.Entry<String, T>> it = map.entrySet().iterator();
+        Map.Entry<String, T> eldest = it.next();
+        it.remove();
+        return eldest;
+    }
+
+    /**
+     * Evicts the least recently used entry
+     */
+    private static class Lru<T> extends EntityCache<T> {
+        private final LinkedHashMap<String, T> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        Lru(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        T get(String id) {
+            return entries.get(id);
+        }
+
+        @Override
+        void put(String id, T object) {
+            entries.put(id, object);
+            if (entries.size() > capacity) {
+                pollEldest(entries);
+                evictions++;
+            }
+        }
+
+        @Override
+        void remove(String id) {
+            entries.remove(id);
+        }
+
+        @Override
+        void clear() {
+            entries.clear();
+        }
+
+        @Override
+        int size() {
+            return entries.size();
+        }
+    }
+
+    /**
+     * W-TinyLFU: new entries go to a small LRU window; an entry leaving the window only
+     * enters the main cache if it has been used more often than the entry it would evict.
+     * The main cache is a segmented LRU, so entries used again while on probation are
+     * promoted to a protected segment. Use counts come from a small count-min sketch
+     * that is halved periodically so old popularity fades.
+     */
+    private static class TinyLfu<T> extends EntityCache<T> {
+        private final LinkedHashMap<String, T> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, T> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, T> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+        private final int windowMax;
+        private final int mainMax;
+        private final int protectedMax;
+        private final FrequencySketch sketch;
+
+        TinyLfu(int capacity) {
+            super(capacity);
+            this.windowMax = Math.max(1, capacity / 100);
+            this.mainMax = capacity - windowMax;
+            this.protectedMax = mainMax * 4 / 5;
+            this.sketch = new FrequencySketch(capacity);
+        }
+
+        @Override
+        T get(String id) {
+            sketch.increment(id);
+
+            T object = window.get(id);
+            if (object != null) {
+                return object;
+            }
+            object = protectedSegment.get(id);
+            if (object != null) {
+                return object;
+            }
+            object = probation.remove(id);
+            if (object != null) {
+                promote(id, object);
+            }
+            return object;
+        }
+
+        /**
+         * Move a probation entry that was used again into the protected segment
+         */
+        private void promote(String id, T object) {
+            protectedSegment.put(id, object);
+            if (protectedSegment.size() > protectedMax) {
+                Map.Entry<String, T> demoted = pollEldest(protectedSegment);
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+
+        @Override
+        void put(String id, T object) {
+            sketch.increment(id);
+
+            if (window.containsKey(id)) {
+                window.put(id, object);
+            } else if (protectedSegment.containsKey(id)) {
+                protectedSegment.put(id, object);
+            } else if (probation.containsKey(id)) {
+                probation.put(id, object);
+            } else {
+                window.put(id, object);
+                if (window.size() > windowMax) {
+                    admit(pollEldest(window));
+                }
+            }
+        }
+
+        /**
+         * Decide whether an entry leaving the window replaces the main cache's eviction victim
+         */
+        private void admit(Map.Entry<String, T> candidate) {
+            if (probation.size() + protectedSegment.size() < mainMax) {
+                probation.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+
+            evictions++;
+            if (mainMax == 0) {
+                return;
+            }
+
+            LinkedHashMap<String, T> victims = probation.isEmpty() ? protectedSegment : probation;
+            String victim = victims.keySet().iterator().next();
+            if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+                victims.remove(victim);
+                probation.put(candidate.getKey(), candidate.getValue());
+            }
+        }
+
+        @Override
+        void remove(String id) {
+            if (window.remove(id) == null && probation.remove(id) == null) {
+                protectedSegment.remove(id);
+            }
+        }
+
+        @Override
+        void clear() {
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+        }
+
+        @Override
+        int size() {
+            return window.size() + probation.size() + protectedSegment.size();
+        }
+    }
+
+    /**
+     * Approximate use counts (up to 15) for any number of keys in a fixed amount of memory
+     */
+    private static class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, capacity) * 2 - 1);
+            this.counters = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, capacity);
+        }
+
+        private int slot(String key, int row) {
+            int hash = key.hashCode() * SEEDS[row];
+            hash ^= hash >>> 16;
+            return hash & mask;
+        }
+
+        void increment(String key) {
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int slot = slot(key, row);
+                if (counters[row][slot] < MAX_COUNT) {
+                    counters[row][slot]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                halve();
+            }
+        }
+
+        int frequency(String key) {
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, counters[row][slot(key, row)]);
+            }
+            return min;
+        }
+
+        /**
+         * Age every count so entries that were popular long ago can be evicted
+         */
+        private void halve() {
+            for (byte[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (byte) (row[i] >> 1);
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
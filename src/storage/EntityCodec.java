@@ -0,0 +1,41 @@
+package storage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Interface for converting stored objects to and from a binary form.
+ * Used by FileStorage snapshots and WriteAheadLog records.
+ * @param <T> Type of objects being encoded
+ */
+public interface EntityCodec<T> {
+
+    /**
+     * Format version written into snapshot headers.
+     * Bump it whenever the encoded layout changes.
+     */
+    int version();
+
+    /**
+     * Write one object
+     * @param object The object to encode
+     * @param out Destination stream
+     */
+    void encode(T object, DataOutput out) throws IOException;
+
+    /**
+     * Read one object
+     * @param in Source stream
+     * @param version Format version the object was written with
+     * @return The decoded object
+     */
+    T decode(DataInput in, int version) throws IOException;
+
+    /**
+     * Force to disk anything encode() wrote outside the stream it was given. Called before the
+     * log or snapshot holding the encoded objects is forced, so they never refer to lost data.
+     */
+    default void sync() throws IOException {
+    }
+}
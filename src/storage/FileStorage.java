@@ -1,128 +1,571 @@
 package storage;
 
-import model.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Implementation of DataStorage that uses files for persistence.
  * Demonstrates polymorphism through implementation of the DataStorage interface.
+ * Snapshots are written either with Java serialization of the whole list (the original
+ * format) or, when an EntityCodec is supplied, as a compact versioned binary file.
+ * When a WriteAheadLog is supplied, each mutation appends one record to the log
+ * instead of rewriting the whole file, and the log is folded into a fresh snapshot
+ * in the background once it grows past its compaction threshold.
+ *
+ * A change is made in memory first and then logged. If its record cannot be appended, or
+ * its group fsync fails later, the change is undone again (together with every later change
+ * that was not durable yet), so readers and snapshots never keep a write that was rejected.
  * @param <T> Type of objects to store
  */
 public class FileStorage<T> implements DataStorage<T> {
-    private List<T> objects;
+    public static final int DEFAULT_GENERATIONS = 2;
+    private static final int SNAPSHOT_MAGIC = 0x50525342;  // "PRSB"
+    private static final Write REJECTED = new Write(false);
+    private static final Write APPLIED = new Write(true);
+
+    // id -> object, in insertion order, so point lookups don't scan the whole list
+    private final Map<String, T> objects;
     private final String fileName;
     private final Class<T> typeClass;
+    private final Function<T, String> idExtractor;
+    private final EntityCodec<T> codec;  // null for the Java serialization format
+    private final WriteAheadLog<T> wal;  // null when every mutation rewrites the whole file
+    private final SnapshotWriter snapshotWriter;
+    private final SecondaryIndexes<T> indexes = new SecondaryIndexes<>();
+    private final ReadSnapshot<T> snapshot = new ReadSnapshot<>();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+    // Logged writes that may not be durable yet, oldest first; their undo runs if the log fails
+    private final Deque<Write> pending = new ArrayDeque<>();
+    private ExecutorService compactor;
+    // Why writes are refused, or null while writable. Set when the live snapshot could not be read
+    // (the log only holds changes made after that snapshot, so writing on top of an older generation
+    // would lose data for good) or when the log can no longer be written
+    private volatile String readOnly;
+
+    /**
+     * A write made in memory whose log record may still have to become durable
+     */
+    private static final class Write {
+        final CompletableFuture<Void> durable;  // null if the outcome was known at once
+        final Runnable undo;
+        final long logOffset;  // where the write's record starts
+        Boolean outcome;  // null while pending; guarded by the storage lock
+
+        Write(boolean outcome) {
+            this(null, null, -1);
+            this.outcome = outcome;
+        }
+
+        Write(CompletableFuture<Void> durable, Runnable undo, long logOffset) {
+            this.durable = durable;
+            this.undo = undo;
+            this.logOffset = logOffset;
+        }
+    }
+
+    /**
+     * Appends one write's record to the log
+     */
+    private interface LogAppend {
+        CompletableFuture<Void> append() throws IOException;
+    }
 
     /**
      * Constructor
      * @param fileName Name of the file to store data
      * @param typeClass Class of the objects being stored
+     * @param idExtractor Function returning the unique ID of a stored object
      */
-    public FileStorage(String fileName, Class<T> typeClass) {
+    public FileStorage(String fileName, Class<T> typeClass, Function<T, String> idExtractor) {
+        this(fileName, typeClass, idExtractor, null);
+    }
+
+    /**
+     * Constructor for write-ahead log mode
+     * @param fileName Name of the snapshot file
+     * @param typeClass Class of the objects being stored
+     * @param idExtractor Function returning the unique ID of a stored object
+     * @param wal Log that receives one record per mutation, or null to rewrite the file on every change
+     */
+    public FileStorage(String fileName, Class<T> typeClass, Function<T, String> idExtractor,
+                       WriteAheadLog<T> wal) {
+        this(fileName, typeClass, idExtractor, wal, DEFAULT_GENERATIONS);
+    }
+
+    /**
+     * Constructor
+     * @param fileName Name of the snapshot file
+     * @param typeClass Class of the objects being stored
+     * @param idExtractor Function returning the unique ID of a stored object
+     * @param wal Log that receives one record per mutation, or null to rewrite the file on every change
+     * @param generations Number of previous snapshots to keep next to the live file
+     */
+    public FileStorage(String fileName, Class<T> typeClass, Function<T, String> idExtractor,
+                       WriteAheadLog<T> wal, int generations) {
+        this(fileName, typeClass, idExtractor, null, wal, generations);
+    }
+
+    /**
+     * Constructor
+     * @param fileName Name of the snapshot file
+     * @param typeClass Class of the objects being stored
+     * @param idExtractor Function returning the unique ID of a stored object
+     * @param codec Binary codec for snapshots, or null to use Java serialization
+     * @param wal Log that receives one record per mutation, or null to rewrite the file on every change
+     * @param generations Number of previous snapshots to keep next to the live file
+     */
+    public FileStorage(String fileName, Class<T> typeClass, Function<T, String> idExtractor,
+                       EntityCodec<T> codec, WriteAheadLog<T> wal, int generations) {
         this.fileName = fileName;
         this.typeClass = typeClass;
-        this.objects = new ArrayList<>();
+        this.idExtractor = Objects.requireNonNull(idExtractor);
+        this.codec = codec;
+        this.wal = wal;
+        this.snapshotWriter = new SnapshotWriter(fileName, generations);
+        this.objects = new LinkedHashMap<>();
         loadAll();
     }
 
     @Override
     public boolean save(T object) {
-        // Add the object if it doesn't already exist
-        if (!objects.contains(object)) {
-            objects.add(object);
-            return saveAll();
+        return awaitDurable(saveLocked(object));
+    }
+
+    private synchronized Write saveLocked(T object) {
+        if (!writable()) {
+            return REJECTED;
         }
-        return false;
+        String id = idExtractor.apply(object);
+
+        // Add the object if it doesn't already exist and none of its unique keys are taken
+        if (objects.containsKey(id) || !indexes.reserve(id, object)) {
+            return REJECTED;
+        }
+        objects.put(id, object);
+        indexes.commit(id, object);
+        snapshot.invalidate();
+        return persist(() -> wal.appendPut(object), () -> restore(id, null));
     }
 
     @Override
-    public Optional<T> findById(String id) {
-        for (T obj : objects) {
-            String objId = "";
-
-            // Determine which type of object we're dealing with and get its ID
-            if (obj instanceof User) {
-                objId = ((User) obj).getUserId();
-            } else if (obj instanceof Paper) {
-                objId = ((Paper) obj).getPaperId();
-            } else if (obj instanceof Review) {
-                objId = ((Review) obj).getReviewId();
-            }
+    public boolean saveAll(Collection<T> batch) {
+        return awaitDurable(saveAllLocked(batch));
+    }
 
-            // Return the object if IDs match
-            if (objId.equals(id)) {
-                return Optional.of(obj);
-            }
+    private synchronized Write saveAllLocked(Collection<T> batch) {
+        if (!writable()) {
+            return REJECTED;
+        }
+        if (!indexes.insertAll(batch, objects, idExtractor)) {
+            return REJECTED;
         }
-        return Optional.empty();
+        snapshot.invalidate();
+        return persist(() -> wal.appendBatch(batch, List.of()), () -> {
+            for (T object : batch) {
+                restore(idExtractor.apply(object), null);
+            }
+        });
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return Optional.ofNullable(objects.get(id));
     }
 
     @Override
     public List<T> findAll() {
-        return new ArrayList<>(objects);  // Return a copy to prevent external modification
+        return snapshot.get(objects.values());  // Immutable and shared until the next write
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return findAll().stream();  // Iterates the shared snapshot
+    }
+
+    @Override
+    public List<T> findWhere(Predicate<T> predicate) {
+        return select(predicate).toList();
+    }
+
+    @Override
+    public long count(Predicate<T> predicate) {
+        return select(predicate).count();
+    }
+
+    @Override
+    public Optional<T> findFirst(Predicate<T> predicate) {
+        return select(predicate).findFirst();
+    }
+
+    @Override
+    public synchronized void createSortedIndex(String name, Function<T, String> keyExtractor) {
+        indexes.addSorted(name, keyExtractor, objects);
+    }
+
+    @Override
+    public Page<T> findPage(String cursor, int limit, String sortKey) {
+        return indexes.page(sortKey, cursor, limit, objects);
+    }
+
+    @Override
+    public IndexPredicate<T> indexEquals(String name, String key) {
+        return indexes.predicate(name, key);
+    }
+
+    private Stream<T> select(Predicate<T> predicate) {
+        return indexes.select(predicate, objects, this::stream);
     }
 
     @Override
     public boolean update(T object) {
-        String id = "";
-
-        // Determine which type of object we're dealing with and get its ID
-        if (object instanceof User) {
-            id = ((User) object).getUserId();
-        } else if (object instanceof Paper) {
-            id = ((Paper) object).getPaperId();
-        } else if (object instanceof Review) {
-            id = ((Review) object).getReviewId();
-        }
-
-        // Find and replace the object with the updated version
-        for (int i = 0; i < objects.size(); i++) {
-            T obj = objects.get(i);
-            String objId = "";
-
-            if (obj instanceof User) {
-                objId = ((User) obj).getUserId();
-            } else if (obj instanceof Paper) {
-                objId = ((Paper) obj).getPaperId();
-            } else if (obj instanceof Review) {
-                objId = ((Review) obj).getReviewId();
+        return awaitDurable(updateLocked(object));
+    }
+
+    private synchronized Write updateLocked(T object) {
+        if (!writable()) {
+            return REJECTED;
+        }
+        String id = idExtractor.apply(object);
+        T current = objects.get(id);
+
+        // Replace the object with the updated version
+        return current != null ? replace(id, current, object) : REJECTED;
+    }
+
+    @Override
+    public boolean compareAndUpdate(long expectedVersion, T newValue) {
+        Versions.requireVersioned(newValue);
+        return awaitDurable(compareAndUpdateLocked(expectedVersion, newValue));
+    }
+
+    private synchronized Write compareAndUpdateLocked(long expectedVersion, T newValue) {
+        if (!writable()) {
+            return REJECTED;
+        }
+        String id = idExtractor.apply(newValue);
+        T current = objects.get(id);
+
+        if (current == null || Versions.of(current) != expectedVersion) {
+            return REJECTED;
+        }
+        return replace(id, current, newValue);
+    }
+
+    private Write replace(String id, T current, T object) {
+        if (!indexes.reserve(id, object)) {
+            return REJECTED;
+        }
+        long version = Versions.of(object);
+        Versions.advance(current, object);
+        objects.put(id, object);
+        indexes.commit(id, object);
+        snapshot.invalidate();
+        return persist(() -> wal.appendPut(object), () -> {
+            restore(id, current);
+            Versions.set(object, version);
+        });
+    }
+
+    @Override
+    public boolean updateAll(Collection<T> batch) {
+        return awaitDurable(updateAllLocked(batch));
+    }
+
+    private synchronized Write updateAllLocked(Collection<T> batch) {
+        if (!writable()) {
+            return REJECTED;
+        }
+        List<T> previous = indexes.replaceAll(batch, objects, idExtractor);
+        if (previous == null) {
+            return REJECTED;
+        }
+        Versions.advanceAll(previous, batch);
+        snapshot.invalidate();
+        return persist(() -> wal.appendBatch(batch, List.of()), () -> {
+            Iterator<T> replaced = previous.iterator();
+            for (T object : batch) {
+                T current = replaced.next();
+                restore(idExtractor.apply(object), current);
+                Versions.set(object, Versions.of(current));
             }
+        });
+    }
+
+    @Override
+    public boolean deleteAll(Collection<String> ids) {
+        return awaitDurable(deleteAllLocked(ids));
+    }
 
-            if (objId.equals(id)) {
-                objects.set(i, object);
-                return saveAll();
+    private synchronized Write deleteAllLocked(Collection<String> ids) {
+        if (!writable()) {
+            return REJECTED;
+        }
+        Map<String, T> removed = new LinkedHashMap<>();
+        for (String id : ids) {
+            T current = objects.get(id);
+            if (current == null) {
+                return REJECTED;
             }
+            removed.put(id, current);
         }
-        return false;
+        indexes.removeAll(ids, objects);
+        snapshot.invalidate();
+        return persist(() -> wal.appendBatch(List.of(), ids), () -> removed.forEach(this::restore));
     }
 
     @Override
     public boolean deleteById(String id) {
-        for (int i = 0; i < objects.size(); i++) {
-            T obj = objects.get(i);
-            String objId = "";
-
-            if (obj instanceof User) {
-                objId = ((User) obj).getUserId();
-            } else if (obj instanceof Paper) {
-                objId = ((Paper) obj).getPaperId();
-            } else if (obj instanceof Review) {
-                objId = ((Review) obj).getReviewId();
+        return awaitDurable(deleteLocked(id));
+    }
+
+    private synchronized Write deleteLocked(String id) {
+        if (!writable()) {
+            return REJECTED;
+        }
+        T current = objects.remove(id);
+        if (current != null) {
+            indexes.remove(id);
+            snapshot.invalidate();
+            return persist(() -> wal.appendDelete(id), () -> restore(id, current));
+        }
+        return REJECTED;
+    }
+
+    @Override
+    public synchronized void createUniqueIndex(String name, Function<T, String> keyExtractor) {
+        indexes.addUnique(name, keyExtractor, objects);
+    }
+
+    @Override
+    public Optional<T> findByUniqueIndex(String name, String key) {
+        String id = indexes.findUnique(name, key);
+        return id != null ? Optional.ofNullable(objects.get(id)) : Optional.empty();
+    }
+
+    @Override
+    public synchronized void createIndex(String name, Function<T, ? extends Collection<String>> keysExtractor) {
+        indexes.addMulti(name, keysExtractor, objects);
+    }
+
+    @Override
+    public List<T> findByIndex(String name, String key) {
+        List<T> result = new ArrayList<>();
+        for (String id : indexes.find(name, key)) {
+            T obj = objects.get(id);
+            if (obj != null) {
+                result.add(obj);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Persist a change already made in memory, either as a log record or as a full rewrite.
+     * If the change cannot be persisted, undo puts the previous state back.
+     * @return The write, for awaitDurable() once the storage lock is released
+     */
+    private Write persist(LogAppend record, Runnable undo) {
+        if (wal == null) {
+            if (saveAll()) {
+                return APPLIED;
             }
+            undo.run();
+            snapshot.invalidate();
+            return REJECTED;
+        }
 
-            if (objId.equals(id)) {
-                objects.remove(i);
-                return saveAll();
+        Write write;
+        try {
+            long offset = wal.end();
+            write = new Write(record.append(), undo, offset);
+        } catch (IOException e) {
+            System.err.println("Error writing to log: " + e.getMessage());
+            undo.run();
+            snapshot.invalidate();
+            return REJECTED;
+        }
+
+        pending.addLast(write);
+        if (isDurable(write)) {
+            settleDurable(write);
+        }
+        try {
+            scheduleCompactionIfNeeded();
+        } catch (IOException e) {
+            // The write itself is logged; only the size check failed
+            System.err.println("Error checking log size: " + e.getMessage());
+        }
+        return write;
+    }
+
+    /**
+     * Wait until a write is durable. Called after the storage lock is released, so other
+     * writers can append meanwhile and share the same group commit.
+     * @return false if the write was rejected or undone because its record did not become durable
+     */
+    private boolean awaitDurable(Write write) {
+        if (write.durable == null) {
+            return write.outcome;
+        }
+        Throwable failure = null;
+        try {
+            write.durable.join();
+        } catch (CompletionException e) {
+            failure = e.getCause();
+        }
+
+        synchronized (this) {
+            if (write.outcome == null) {
+                if (failure == null) {
+                    settleDurable(write);
+                } else {
+                    logFailed(failure);
+                }
+            }
+            return write.outcome;
+        }
+    }
+
+    private static boolean isDurable(Write write) {
+        return write.durable.isDone() && !write.durable.isCompletedExceptionally();
+    }
+
+    /**
+     * Mark a write and every older pending one as durable (records are forced in log order)
+     */
+    private void settleDurable(Write write) {
+        while (!pending.isEmpty()) {
+            Write settled = pending.pollFirst();
+            settled.outcome = true;
+            if (settled == write) {
+                return;
             }
         }
-        return false;
+    }
+
+    /**
+     * The log could not make pending records durable: cut them off the log, undo their writes,
+     * newest first so every undo finds the state its write left behind, and refuse further
+     * writes. The records can't be retried, as a failed fsync may already have lost them.
+     */
+    private void logFailed(Throwable cause) {
+        while (!pending.isEmpty() && isDurable(pending.peekFirst())) {
+            pending.pollFirst().outcome = true;
+        }
+        readOnly = "its log could not be written (" + cause.getMessage() + ")";
+        System.err.println("ERROR: " + fileName + " is READ-ONLY: " + readOnly
+                + ". Writes that were not durable yet have been undone.");
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        try {
+            wal.discardFrom(pending.peekFirst().logOffset);
+        } catch (IOException e) {
+            System.err.println("ERROR: undone writes are still in the log of " + fileName
+                    + " and would be replayed on the next load: " + e.getMessage());
+        }
+        Iterator<Write> newestFirst = pending.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Write undone = newestFirst.next();
+            undone.undo.run();
+            undone.outcome = false;
+        }
+        pending.clear();
+        snapshot.invalidate();
+    }
+
+    /**
+     * Put back the object an undone write replaced, or remove the one it inserted if previous is null.
+     * Later writes are undone first, so the object's unique keys are free again.
+     */
+    private void restore(String id, T previous) {
+        if (previous == null) {
+            objects.remove(id);
+            indexes.remove(id);
+            return;
+        }
+        if (!indexes.reserve(id, previous)) {
+            System.err.println("Error: a unique key of " + id + " was taken while undoing a write");
+        }
+        objects.put(id, previous);
+        indexes.commit(id, previous);
+    }
+
+    /**
+     * Fold the log into a fresh snapshot on a background thread once it is large enough
+     */
+    private void scheduleCompactionIfNeeded() throws IOException {
+        if (!wal.needsCompaction() || !compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "wal-compaction-" + fileName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        compactor.submit(() -> {
+            try {
+                compact();
+            } finally {
+                compactionScheduled.set(false);
+            }
+        });
+    }
+
+    /**
+     * Write a snapshot of the current state and discard the log records it covers
+     * @return true if compacted successfully
+     */
+    public synchronized boolean compact() {
+        if (wal == null) {
+            return saveAll();
+        }
+
+        if (!saveAll()) {
+            return false;
+        }
+
+        try {
+            wal.reset();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error truncating log: " + e.getMessage());
+            return false;
+        }
     }
 
     @Override
-    public boolean saveAll() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
-            oos.writeObject(objects);
+    public synchronized boolean saveAll() {
+        if (!writable()) {
+            return false;
+        }
+
+        // Never snapshot a change whose log record may still be lost (and its write undone)
+        if (!pending.isEmpty()) {
+            try {
+                wal.force();
+            } catch (IOException e) {
+                logFailed(e);
+                return false;
+            }
+            settleDurable(pending.peekLast());
+        }
+
+        try {
+            snapshotWriter.write(codec != null ? this::writeBinarySnapshot : this::writeSerializedSnapshot);
             return true;
         } catch (IOException e) {
             System.err.println("Error saving to file: " + e.getMessage());
@@ -130,9 +573,80 @@ public class FileStorage<T> implements DataStorage<T> {
         }
     }
 
-    @SuppressWarnings("unchecked")
+    private void writeSerializedSnapshot(OutputStream out) throws IOException {
+        // Written as a plain list so existing data files stay readable
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(new ArrayList<>(objects.values()));
+        oos.flush();
+    }
+
+    private void writeBinarySnapshot(OutputStream out) throws IOException {
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(SNAPSHOT_MAGIC);
+        dos.writeInt(codec.version());
+        dos.writeInt(objects.size());
+        for (T obj : objects.values()) {
+            codec.encode(obj, dos);
+        }
+        dos.flush();
+        codec.sync();  // before the snapshot itself is forced and published
+    }
+
+    /**
+     * Refuse a write while the storage is read-only
+     */
+    private boolean writable() {
+        String reason = readOnly;
+        if (reason != null) {
+            System.err.println("Error: " + fileName + " is read-only because " + reason);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether writes are refused because the live snapshot could not be read or the log failed
+     */
+    public boolean isReadOnly() {
+        return readOnly != null;
+    }
+
+    /**
+     * Duration and size of the last snapshot written, or null if none has been written yet
+     */
+    public SnapshotWriter.Stats getLastSnapshotStats() {
+        return snapshotWriter.getLastStats();
+    }
+
     @Override
-    public void loadAll() {
+    public synchronized void loadAll() {
+        objects.clear();
+        pending.clear();
+        readOnly = null;
+        loadSnapshot();
+
+        // Replay mutations made since the last snapshot
+        if (wal != null) {
+            try {
+                wal.replay(objects, idExtractor);
+            } catch (IOException e) {
+                // Writing on would put new records after ones that were never applied
+                readOnly = "its log could not be replayed";
+                System.err.println("ERROR: " + e.getMessage() + ". " + fileName + " is READ-ONLY and shows "
+                        + "only the changes before that record until the log is repaired.");
+            }
+        }
+        indexes.rebuild(objects);
+        snapshot.invalidate();
+    }
+
+    /**
+     * Load the live snapshot. If it is unreadable, the newest readable older generation is
+     * loaded so the data can still be viewed, but the storage is made read-only: the changes
+     * between that generation and the live snapshot are not in the log, and a later write
+     * or compaction would replace the damaged file and lose them for good.
+     */
+    private void loadSnapshot() {
         File file = new File(fileName);
 
         // If file doesn't exist yet, return without loading
@@ -140,10 +654,60 @@ public class FileStorage<T> implements DataStorage<T> {
             return;
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            objects = (List<T>) ois.readObject();
+        try {
+            readSnapshot(file);
+            return;
         } catch (IOException | ClassNotFoundException e) {
             System.err.println("Error loading from file: " + e.getMessage());
         }
+
+        readOnly = "its snapshot could not be read";
+        System.err.println("ERROR: " + fileName + " is unreadable. The storage is READ-ONLY until the file "
+                + "is restored; older snapshot generations do not include every change.");
+        for (int i = 1; i <= snapshotWriter.getGenerations(); i++) {
+            File previous = snapshotWriter.generation(i).toFile();
+            if (!previous.exists()) {
+                continue;
+            }
+            try {
+                objects.clear();
+                readSnapshot(previous);
+                System.err.println("Showing previous snapshot (read-only, may be missing recent changes): "
+                        + previous.getName());
+                return;
+            } catch (IOException | ClassNotFoundException e) {
+                System.err.println("Error loading from file: " + e.getMessage());
+            }
+        }
+        objects.clear();
+    }
+
+    /**
+     * Read a snapshot in either format; the binary format is recognised by its header
+     */
+    @SuppressWarnings("unchecked")
+    private void readSnapshot(File file) throws IOException, ClassNotFoundException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            in.mark(4);
+            if (in.readInt() == SNAPSHOT_MAGIC) {
+                if (codec == null) {
+                    throw new IOException("Binary snapshot found but no codec configured");
+                }
+                int version = in.readInt();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    T obj = codec.decode(in, version);
+                    objects.put(idExtractor.apply(obj), obj);
+                }
+                return;
+            }
+
+            in.reset();
+            ObjectInputStream ois = new ObjectInputStream(in);
+            List<T> loaded = (List<T>) ois.readObject();
+            for (T obj : loaded) {
+                objects.put(idExtractor.apply(obj), obj);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,9 @@
 package storage;
 
-import model.*;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Implementation of DataStorage that keeps everything in memory.
@@ -9,98 +11,176 @@ import java.util.*;
  * Also demonstrates polymorphism through implementation of the DataStorage interface.
  */
 public class InMemoryStorage<T> implements DataStorage<T> {
-    private List<T> objects;
-
-    public InMemoryStorage() {
-        this.objects = new ArrayList<>();
+    // id -> object, in insertion order, so point lookups don't scan the whole list
+    private final Map<String, T> objects;
+    private final Function<T, String> idExtractor;
+    private final SecondaryIndexes<T> indexes = new SecondaryIndexes<>();
+    private final ReadSnapshot<T> snapshot = new ReadSnapshot<>();
+
+    /**
+     * Constructor
+     * @param idExtractor Function returning the unique ID of a stored object
+     */
+    public InMemoryStorage(Function<T, String> idExtractor) {
+        this.idExtractor = Objects.requireNonNull(idExtractor);
+        this.objects = new LinkedHashMap<>();
     }
 
     @Override
     public boolean save(T object) {
-        if (!objects.contains(object)) {
-            objects.add(object);
-            return true;
+        String id = idExtractor.apply(object);
+
+        if (objects.containsKey(id) || !indexes.reserve(id, object)) {
+            return false;
         }
-        return false;
+        objects.put(id, object);
+        indexes.commit(id, object);
+        snapshot.invalidate();
+        return true;
     }
 
     @Override
-    public Optional<T> findById(String id) {
-        for (T obj : objects) {
-            String objId = "";
-
-            if (obj instanceof User) {
-                objId = ((User) obj).getUserId();
-            } else if (obj instanceof Paper) {
-                objId = ((Paper) obj).getPaperId();
-            } else if (obj instanceof Review) {
-                objId = ((Review) obj).getReviewId();
-            }
-
-            if (objId.equals(id)) {
-                return Optional.of(obj);
-            }
+    public boolean saveAll(Collection<T> batch) {
+        if (!indexes.insertAll(batch, objects, idExtractor)) {
+            return false;
         }
-        return Optional.empty();
+        snapshot.invalidate();
+        return true;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return Optional.ofNullable(objects.get(id));
     }
 
     @Override
     public List<T> findAll() {
-        return new ArrayList<>(objects);
+        return snapshot.get(objects.values());  // Immutable and shared until the next write
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return findAll().stream();  // Iterates the shared snapshot
+    }
+
+    @Override
+    public List<T> findWhere(Predicate<T> predicate) {
+        return select(predicate).toList();
+    }
+
+    @Override
+    public long count(Predicate<T> predicate) {
+        return select(predicate).count();
+    }
+
+    @Override
+    public Optional<T> findFirst(Predicate<T> predicate) {
+        return select(predicate).findFirst();
+    }
+
+    @Override
+    public void createSortedIndex(String name, Function<T, String> keyExtractor) {
+        indexes.addSorted(name, keyExtractor, objects);
+    }
+
+    @Override
+    public Page<T> findPage(String cursor, int limit, String sortKey) {
+        return indexes.page(sortKey, cursor, limit, objects);
+    }
+
+    @Override
+    public IndexPredicate<T> indexEquals(String name, String key) {
+        return indexes.predicate(name, key);
+    }
+
+    private Stream<T> select(Predicate<T> predicate) {
+        return indexes.select(predicate, objects, this::stream);
     }
 
     @Override
     public boolean update(T object) {
-        String id = "";
-
-        if (object instanceof User) {
-            id = ((User) object).getUserId();
-        } else if (object instanceof Paper) {
-            id = ((Paper) object).getPaperId();
-        } else if (object instanceof Review) {
-            id = ((Review) object).getReviewId();
+        String id = idExtractor.apply(object);
+        T current = objects.get(id);
+
+        return current != null && replace(id, current, object);
+    }
+
+    @Override
+    public boolean compareAndUpdate(long expectedVersion, T newValue) {
+        Versions.requireVersioned(newValue);
+        String id = idExtractor.apply(newValue);
+        T current = objects.get(id);
+
+        return current != null && Versions.of(current) == expectedVersion && replace(id, current, newValue);
+    }
+
+    private boolean replace(String id, T current, T object) {
+        if (!indexes.reserve(id, object)) {
+            return false;
         }
+        Versions.advance(current, object);
+        objects.put(id, object);
+        indexes.commit(id, object);
+        snapshot.invalidate();
+        return true;
+    }
 
-        for (int i = 0; i < objects.size(); i++) {
-            T obj = objects.get(i);
-            String objId = "";
+    @Override
+    public boolean updateAll(Collection<T> batch) {
+        List<T> previous = indexes.replaceAll(batch, objects, idExtractor);
+        if (previous == null) {
+            return false;
+        }
+        Versions.advanceAll(previous, batch);
+        snapshot.invalidate();
+        return true;
+    }
 
-            if (obj instanceof User) {
-                objId = ((User) obj).getUserId();
-            } else if (obj instanceof Paper) {
-                objId = ((Paper) obj).getPaperId();
-            } else if (obj instanceof Review) {
-                objId = ((Review) obj).getReviewId();
-            }
+    @Override
+    public boolean deleteAll(Collection<String> ids) {
+        if (!indexes.removeAll(ids, objects)) {
+            return false;
+        }
+        snapshot.invalidate();
+        return true;
+    }
 
-            if (objId.equals(id)) {
-                objects.set(i, object);
-                return true;
-            }
+    @Override
+    public boolean deleteById(String id) {
+        if (objects.remove(id) != null) {
+            indexes.remove(id);
+            snapshot.invalidate();
+            return true;
         }
         return false;
     }
 
     @Override
-    public boolean deleteById(String id) {
-        for (int i = 0; i < objects.size(); i++) {
-            T obj = objects.get(i);
-            String objId = "";
-
-            if (obj instanceof User) {
-                objId = ((User) obj).getUserId();
-            } else if (obj instanceof Paper) {
-                objId = ((Paper) obj).getPaperId();
-            } else if (obj instanceof Review) {
-                objId = ((Review) obj).getReviewId();
-            }
+    public void createUniqueIndex(String name, Function<T, String> keyExtractor) {
+        indexes.addUnique(name, keyExtractor, objects);
+    }
 
-            if (objId.equals(id)) {
-                objects.remove(i);
-                return true;
+    @Override
+    public Optional<T> findByUniqueIndex(String name, String key) {
+        String id = indexes.findUnique(name, key);
+        return id != null ? Optional.ofNullable(objects.get(id)) : Optional.empty();
+    }
+
+    @Override
+    public void createIndex(String name, Function<T, ? extends Collection<String>> keysExtractor) {
+        indexes.addMulti(name, keysExtractor, objects);
+    }
+
+    @Override
+    public List<T> findByIndex(String name, String key) {
+        List<T> result = new ArrayList<>();
+        for (String id : indexes.find(name, key)) {
+            T obj = objects.get(id);
+            if (obj != null) {
+                result.add(obj);
             }
         }
-        return false;
+        return result;
     }
 
     // These methods are no-ops for in-memory storage
@@ -112,4 +192,4 @@ public class InMemoryStorage<T> implements DataStorage<T> {
     @Override
     public void loadAll() {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package storage;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Predicate matching the objects that have a given key in a secondary index.
+ * A storage recognizes the predicates created by its own indexEquals() and answers them
+ * from the index instead of scanning every object. Conditions added with and() are
+ * checked on the index hits only. Anywhere else it behaves like an ordinary predicate.
+ * @param <T> Type of objects being tested
+ */
+public final class IndexPredicate<T> implements Predicate<T> {
+    private final Object owner;  // the indexes that created this predicate
+    private final String name;
+    private final String key;
+    private final Predicate<T> keyTest;
+    private final Predicate<? super T> residual;  // null when only the key is tested
+
+    IndexPredicate(Object owner, String name, String key, Predicate<T> keyTest, Predicate<? super T> residual) {
+        this.owner = owner;
+        this.name = name;
+        this.key = key;
+        this.keyTest = keyTest;
+        this.residual = residual;
+    }
+
+    boolean isFrom(Object indexes) {
+        return owner == indexes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Whether an object returned by the index lookup also passes the and() conditions
+     */
+    boolean testResidual(T object) {
+        return residual == null || residual.test(object);
+    }
+
+    @Override
+    public boolean test(T object) {
+        return keyTest.test(object) && testResidual(object);
+    }
+
+    /**
+     * Combine with another condition while keeping the index lookup
+     */
+    @Override
+    public IndexPredicate<T> and(Predicate<? super T> other) {
+        Objects.requireNonNull(other);
+        Predicate<? super T> combined = residual == null ? other : (T object) -> residual.test(object) && other.test(object);
+        return new IndexPredicate<>(owner, name, key, keyTest, combined);
+    }
+
+    @Override
+    public String toString() {
+        return "IndexPredicate{" + name + "=" + key + "}";
+    }
+}
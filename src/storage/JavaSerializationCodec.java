@@ -0,0 +1,42 @@
+package storage;
+
+import java.io.*;
+
+/**
+ * EntityCodec that falls back to standard Java serialization for each object.
+ * Works for any Serializable type, at the cost of class descriptors in every record.
+ * @param <T> Type of objects being encoded
+ */
+public class JavaSerializationCodec<T> implements EntityCodec<T> {
+    private final Class<T> typeClass;
+
+    public JavaSerializationCodec(Class<T> typeClass) {
+        this.typeClass = typeClass;
+    }
+
+    @Override
+    public int version() {
+        return 1;
+    }
+
+    @Override
+    public void encode(T object, DataOutput out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(object);
+        }
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    @Override
+    public T decode(DataInput in, int version) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return typeClass.cast(ois.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in stored record", e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package storage;
+
+import model.Paper;
+import model.ReviewStatus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+import static storage.BinaryCodecs.*;
+
+/**
+ * Paper codec that keeps only metadata in the snapshot and log.
+ * The abstract and content are written to a memory-mapped PaperBodyFile and replaced
+ * by (offset, length) references, so loaded papers hold their text off-heap and decode
+ * it only when getAbstractText()/getContent() is called. Encoding never changes the paper:
+ * text a paper still holds on the heap is remembered here, so writing the same paper again
+ * (on every update and compaction) re-uses its references instead of appending the text again.
+ *
+ * Version 1 records (inline text, as written by PaperCodec) are still readable.
+ */
+public class MappedPaperCodec implements EntityCodec<Paper> {
+    private static final int VERSION = 2;
+
+    private final PaperBodyFile bodyFile;
+    private final PaperCodec inlineCodec = new PaperCodec();
+    // Weak keys (Paper has identity equality), so an entry goes away with its paper
+    private final Map<Paper, StoredText> writtenAbstracts = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<Paper, StoredText> writtenContents = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Heap text of a paper and where it was appended to the body file
+     */
+    private record StoredText(String text, PaperBodyFile.TextRef ref) {
+    }
+
+    /**
+     * Constructor
+     * @param bodyFile File that receives paper abstracts and contents
+     */
+    public MappedPaperCodec(PaperBodyFile bodyFile) {
+        this.bodyFile = bodyFile;
+    }
+
+    @Override
+    public int version() {
+        return VERSION;
+    }
+
+    @Override
+    public void encode(Paper paper, DataOutput out) throws IOException {
+        writeString(out, paper.getPaperId());
+        writeString(out, paper.getTitle());
+        writeText(out, paper, paper.getAbstractSource(), paper::getAbstractText, writtenAbstracts);
+        writeText(out, paper, paper.getContentSource(), paper::getContent, writtenContents);
+        writeString(out, paper.getAuthorId());
+        writeString(out, paper.getAuthorName());
+        writeDateTime(out, paper.getSubmissionDate());
+        writeStringList(out, paper.getKeywords());
+        writeStringList(out, paper.getReviewerIds());
+        writeEnum(out, paper.getStatus());
+    }
+
+    /**
+     * Write a text reference, appending the text to the body file unless it is already there
+     */
+    private void writeText(DataOutput out, Paper paper, Supplier<String> source, Supplier<String> text,
+                           Map<Paper, StoredText> written) throws IOException {
+        PaperBodyFile.TextRef ref;
+        if (source instanceof PaperBodyFile.TextRef existing && existing.file() == bodyFile) {
+            ref = existing;
+        } else {
+            String value = text.get();
+            if (value == null) {
+                out.writeLong(-1);
+                return;
+            }
+            // Same String instance: the text was not set again since it was appended
+            StoredText stored = written.get(paper);
+            if (stored != null && stored.text() == value) {
+                ref = stored.ref();
+            } else {
+                ref = bodyFile.append(value);
+                written.put(paper, new StoredText(value, ref));
+            }
+        }
+        out.writeLong(ref.offset());
+        out.writeInt(ref.length());
+    }
+
+    private Supplier<String> readText(DataInput in) throws IOException {
+        long offset = in.readLong();
+        if (offset < 0) {
+            return () -> null;
+        }
+        return new PaperBodyFile.TextRef(bodyFile, offset, in.readInt());
+    }
+
+    @Override
+    public void sync() throws IOException {
+        bodyFile.sync();
+    }
+
+    @Override
+    public Paper decode(DataInput in, int version) throws IOException {
+        if (version < VERSION) {
+            return inlineCodec.decode(in, version);
+        }
+
+        return new Paper(
+                readString(in), readString(in), readText(in), readText(in),
+                readString(in), readString(in), readDateTime(in),
+                readStringList(in), readStringList(in), readEnum(in, ReviewStatus.values())
+        );
+    }
+}
@@ -0,0 +1,27 @@
+package storage;
+
+import java.util.List;
+
+/**
+ * One page of a sorted listing.
+ * @param items The objects on this page, in sort order
+ * @param nextCursor Cursor to pass to findPage() for the following page, or null on the last page
+ * @param <T> Type of objects listed
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+
+    public Page {
+        items = List.copyOf(items);
+    }
+
+    /**
+     * Whether another page follows this one
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
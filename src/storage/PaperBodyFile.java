@@ -0,0 +1,151 @@
+package storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Append-only file holding paper abstracts and contents as UTF-8 text.
+ * The file is memory-mapped for reading, so text is only decoded when it is asked for
+ * and never has to sit on the heap between requests.
+ * Appends are not forced on their own: the log or snapshot that refers to the text calls
+ * sync() (through its codec) before it is forced, so each group commit costs one extra fsync.
+ */
+public class PaperBodyFile implements Closeable {
+    private static final long SEGMENT_SIZE = 1L << 30;  // a single mapping is limited to 2 GB
+
+    /**
+     * Location of one piece of text in the body file.
+     * Handed to Paper as its abstract/content source.
+     */
+    public record TextRef(PaperBodyFile file, long offset, int length) implements Supplier<String> {
+        @Override
+        public String get() {
+            return file.read(offset, length);
+        }
+    }
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long mappedSize;
+    private long size;
+    private boolean unsynced;
+
+    /**
+     * Constructor
+     * @param fileName Name of the body file, created if it does not exist
+     */
+    public PaperBodyFile(String fileName) throws IOException {
+        this.channel = FileChannel.open(Path.of(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.size = channel.size();
+    }
+
+    /**
+     * Append text to the end of the file; it is durable after the next sync()
+     * @return Reference to the stored text
+     */
+    public synchronized TextRef append(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        long offset = size;
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+        size += bytes.length;
+        unsynced = true;
+        return new TextRef(this, offset, bytes.length);
+    }
+
+    /**
+     * Force appended text to disk, if any was appended since the last sync
+     */
+    public synchronized void sync() throws IOException {
+        if (unsynced) {
+            channel.force(false);
+            unsynced = false;
+        }
+    }
+
+    /**
+     * Decode text stored at the given location
+     */
+    public String read(long offset, int length) {
+        if (length == 0) {
+            return "";
+        }
+
+        byte[] bytes = new byte[length];
+        try {
+            int segment = (int) (offset / SEGMENT_SIZE);
+            int start = (int) (offset % SEGMENT_SIZE);
+
+            if (start + (long) length <= SEGMENT_SIZE) {
+                segment(segment, offset + length).get(start, bytes);
+            } else {
+                // Text straddles two mappings, read it directly instead
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                long position = offset;
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of body file");
+                    }
+                    position += read;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reading paper text: " + e.getMessage(), e);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Mapping for a segment, extended if it does not yet cover the requested end position
+     */
+    private synchronized MappedByteBuffer segment(int index, long end) throws IOException {
+        if (end > mappedSize) {
+            remap();
+        }
+        return segments.get(index);
+    }
+
+    private void remap() throws IOException {
+        // Full segments never change, only the last partial one is mapped again
+        if (!segments.isEmpty() && segments.get(segments.size() - 1).capacity() < SEGMENT_SIZE) {
+            segments.remove(segments.size() - 1);
+        }
+
+        long start = (long) segments.size() * SEGMENT_SIZE;
+        while (start < size) {
+            long length = Math.min(SEGMENT_SIZE, size - start);
+            segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+            start += length;
+        }
+        mappedSize = size;
+    }
+
+    /**
+     * Total size of the file in bytes
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        segments.clear();
+        channel.close();
+    }
+}
@@ -0,0 +1,45 @@
+package storage;
+
+import model.Paper;
+import model.ReviewStatus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static storage.BinaryCodecs.*;
+
+/**
+ * Binary codec for Paper
+ */
+public class PaperCodec implements EntityCodec<Paper> {
+    private static final int VERSION = 1;
+
+    @Override
+    public int version() {
+        return VERSION;
+    }
+
+    @Override
+    public void encode(Paper paper, DataOutput out) throws IOException {
+        writeString(out, paper.getPaperId());
+        writeString(out, paper.getTitle());
+        writeString(out, paper.getAbstractText());
+        writeString(out, paper.getContent());
+        writeString(out, paper.getAuthorId());
+        writeString(out, paper.getAuthorName());
+        writeDateTime(out, paper.getSubmissionDate());
+        writeStringList(out, paper.getKeywords());
+        writeStringList(out, paper.getReviewerIds());
+        writeEnum(out, paper.getStatus());
+    }
+
+    @Override
+    public Paper decode(DataInput in, int version) throws IOException {
+        return new Paper(
+                readString(in), readString(in), readString(in), readString(in),
+                readString(in), readString(in), readDateTime(in),
+                readStringList(in), readStringList(in), readEnum(in, ReviewStatus.values())
+        );
+    }
+}
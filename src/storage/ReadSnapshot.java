@@ -0,0 +1,42 @@
+package storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Immutable copy of a storage's contents, shared by every findAll() call until the next write.
+ * Repeated reads therefore allocate nothing; the copy is only rebuilt after the data changed.
+ * @param <T> Type of objects stored
+ */
+class ReadSnapshot<T> {
+
+    private record Snapshot<T>(long modification, List<T> objects) {
+    }
+
+    private final AtomicLong modifications = new AtomicLong();
+    private final AtomicReference<Snapshot<T>> current = new AtomicReference<>();
+
+    /**
+     * Called after every write, so later reads see the change
+     */
+    void invalidate() {
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * The shared snapshot, rebuilt from the source if a write happened since it was taken
+     */
+    List<T> get(Collection<T> source) {
+        long modification = modifications.get();
+        Snapshot<T> snapshot = current.get();
+        if (snapshot != null && snapshot.modification() == modification) {
+            return snapshot.objects();
+        }
+
+        List<T> objects = List.copyOf(source);
+        current.set(new Snapshot<>(modification, objects));
+        return objects;
+    }
+}
@@ -0,0 +1,42 @@
+package storage;
+
+import model.Review;
+import model.ReviewStatus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static storage.BinaryCodecs.*;
+
+/**
+ * Binary codec for Review
+ */
+public class ReviewCodec implements EntityCodec<Review> {
+    private static final int VERSION = 1;
+
+    @Override
+    public int version() {
+        return VERSION;
+    }
+
+    @Override
+    public void encode(Review review, DataOutput out) throws IOException {
+        writeString(out, review.getReviewId());
+        writeString(out, review.getPaperId());
+        writeString(out, review.getReviewerId());
+        writeString(out, review.getReviewerName());
+        out.writeByte(review.getRating());
+        writeString(out, review.getComments());
+        writeDateTime(out, review.getSubmissionDate());
+        writeEnum(out, review.getStatus());
+    }
+
+    @Override
+    public Review decode(DataInput in, int version) throws IOException {
+        return new Review(
+                readString(in), readString(in), readString(in), readString(in),
+                in.readByte(), readString(in), readDateTime(in), readEnum(in, ReviewStatus.values())
+        );
+    }
+}
@@ -0,0 +1,480 @@
+package storage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Secondary indexes shared by the DataStorage implementations.
+ * Each index remembers the key it last recorded for every id, so objects that were
+ * modified in place before update() still have their stale entries removed.
+ * @param <T> Type of objects being indexed
+ */
+class SecondaryIndexes<T> {
+
+    /**
+     * Index where every key maps to at most one object
+     */
+    private static class UniqueIndex<T> {
+        final Function<T, String> keyExtractor;
+        final Map<String, String> idsByKey = new ConcurrentHashMap<>();
+        final Map<String, String> keysById = new ConcurrentHashMap<>();
+
+        UniqueIndex(Function<T, String> keyExtractor) {
+            this.keyExtractor = keyExtractor;
+        }
+    }
+
+    /**
+     * Index where every key maps to any number of objects, and an object may have several keys
+     */
+    private static class MultiIndex<T> {
+        final Function<T, ? extends Collection<String>> keysExtractor;
+        final Map<String, Set<String>> idsByKey = new ConcurrentHashMap<>();
+        final Map<String, Set<String>> keysById = new ConcurrentHashMap<>();
+
+        MultiIndex(Function<T, ? extends Collection<String>> keysExtractor) {
+            this.keysExtractor = keysExtractor;
+        }
+
+        Set<String> keysOf(T object) {
+            Collection<String> keys = keysExtractor.apply(object);
+            if (keys == null || keys.isEmpty()) {
+                return Set.of();
+            }
+            Set<String> result = new HashSet<>(keys);
+            result.remove(null);
+            return result;
+        }
+
+        void add(String key, String id) {
+            idsByKey.compute(key, (k, ids) -> {
+                if (ids == null) {
+                    ids = new LinkedHashSet<>();
+                }
+                synchronized (ids) {
+                    ids.add(id);
+                }
+                return ids;
+            });
+        }
+
+        void remove(String key, String id) {
+            idsByKey.computeIfPresent(key, (k, ids) -> {
+                synchronized (ids) {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                }
+            });
+        }
+    }
+
+    /**
+     * Index keeping every object ordered by a key, for paging through listings.
+     * Entries are stored as key + '\0' + id so objects with equal keys keep a stable order
+     * and every entry can serve as a cursor.
+     */
+    private static class SortedIndex<T> {
+        final Function<T, String> keyExtractor;
+        final NavigableMap<String, String> idsByEntry = new ConcurrentSkipListMap<>();
+        final Map<String, String> entriesById = new ConcurrentHashMap<>();
+
+        SortedIndex(Function<T, String> keyExtractor) {
+            this.keyExtractor = keyExtractor;
+        }
+
+        String entryOf(String id, T object) {
+            String key = keyExtractor.apply(object);
+            return (key == null ? "" : key) + '\0' + id;
+        }
+
+        void put(String id, T object) {
+            String entry = entryOf(id, object);
+            String previous = entriesById.put(id, entry);
+            if (previous != null && !previous.equals(entry)) {
+                idsByEntry.remove(previous, id);
+            }
+            idsByEntry.put(entry, id);
+        }
+    }
+
+    private final Map<String, UniqueIndex<T>> uniqueIndexes = new ConcurrentHashMap<>();
+    private final Map<String, MultiIndex<T>> multiIndexes = new ConcurrentHashMap<>();
+    private final Map<String, SortedIndex<T>> sortedIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Register a unique index and fill it from the objects already stored.
+     * If existing data already contains duplicate keys, the first object keeps the key.
+     */
+    void addUnique(String name, Function<T, String> keyExtractor, Map<String, T> existing) {
+        UniqueIndex<T> index = new UniqueIndex<>(keyExtractor);
+        for (Map.Entry<String, T> entry : existing.entrySet()) {
+            String key = keyExtractor.apply(entry.getValue());
+            if (key == null) {
+                continue;
+            }
+            if (index.idsByKey.putIfAbsent(key, entry.getKey()) == null) {
+                index.keysById.put(entry.getKey(), key);
+            } else {
+                System.err.println("Duplicate key '" + key + "' in index " + name + ", keeping the first entry");
+            }
+        }
+        uniqueIndexes.put(name, index);
+    }
+
+    /**
+     * Register a non-unique index and fill it from the objects already stored
+     */
+    void addMulti(String name, Function<T, ? extends Collection<String>> keysExtractor, Map<String, T> existing) {
+        MultiIndex<T> index = new MultiIndex<>(keysExtractor);
+        for (Map.Entry<String, T> entry : existing.entrySet()) {
+            Set<String> keys = index.keysOf(entry.getValue());
+            if (!keys.isEmpty()) {
+                index.keysById.put(entry.getKey(), keys);
+                for (String key : keys) {
+                    index.add(key, entry.getKey());
+                }
+            }
+        }
+        multiIndexes.put(name, index);
+    }
+
+    /**
+     * Register a sorted index and fill it from the objects already stored
+     */
+    void addSorted(String name, Function<T, String> keyExtractor, Map<String, T> existing) {
+        SortedIndex<T> index = new SortedIndex<>(keyExtractor);
+        for (Map.Entry<String, T> entry : existing.entrySet()) {
+            index.put(entry.getKey(), entry.getValue());
+        }
+        sortedIndexes.put(name, index);
+    }
+
+    /**
+     * Claim the unique keys of an object before it is stored.
+     * Keys are claimed atomically, so two objects can never both succeed with the same key.
+     * @return false (with nothing claimed) if another object already owns one of the keys
+     */
+    boolean reserve(String id, T object) {
+        List<Map.Entry<UniqueIndex<T>, String>> claimed = new ArrayList<>();
+
+        for (UniqueIndex<T> index : uniqueIndexes.values()) {
+            String key = index.keyExtractor.apply(object);
+            if (key == null) {
+                continue;
+            }
+
+            String owner = index.idsByKey.putIfAbsent(key, id);
+            if (owner == null) {
+                claimed.add(Map.entry(index, key));
+            } else if (!owner.equals(id)) {
+                for (Map.Entry<UniqueIndex<T>, String> entry : claimed) {
+                    entry.getKey().idsByKey.remove(entry.getValue(), id);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record the current keys of a stored object, releasing any keys it no longer has.
+     * Must follow a successful reserve().
+     */
+    void commit(String id, T object) {
+        for (UniqueIndex<T> index : uniqueIndexes.values()) {
+            String key = index.keyExtractor.apply(object);
+            String previous = key != null ? index.keysById.put(id, key) : index.keysById.remove(id);
+            if (previous != null && !previous.equals(key)) {
+                index.idsByKey.remove(previous, id);
+            }
+        }
+
+        for (MultiIndex<T> index : multiIndexes.values()) {
+            Set<String> keys = index.keysOf(object);
+            Set<String> previous = keys.isEmpty() ? index.keysById.remove(id) : index.keysById.put(id, keys);
+            if (previous == null) {
+                previous = Set.of();
+            }
+            for (String key : previous) {
+                if (!keys.contains(key)) {
+                    index.remove(key, id);
+                }
+            }
+            for (String key : keys) {
+                if (!previous.contains(key)) {
+                    index.add(key, id);
+                }
+            }
+        }
+
+        for (SortedIndex<T> index : sortedIndexes.values()) {
+            index.put(id, object);
+        }
+    }
+
+    /**
+     * Add several new objects to a storage's map and to every index, or none of them if
+     * an ID or unique key is taken. The caller holds the write locks for all the IDs.
+     * @return false (with nothing changed) if the batch was rejected
+     */
+    boolean insertAll(Collection<T> batch, Map<String, T> objects, Function<T, String> idExtractor) {
+        List<String> inserted = new ArrayList<>(batch.size());
+        for (T object : batch) {
+            String id = idExtractor.apply(object);
+            if (objects.containsKey(id) || !reserve(id, object)) {
+                for (String added : inserted) {
+                    objects.remove(added);
+                    remove(added);
+                }
+                return false;
+            }
+            objects.put(id, object);
+            commit(id, object);
+            inserted.add(id);
+        }
+        return true;
+    }
+
+    /**
+     * Replace several stored objects in a storage's map and every index, or none of them if
+     * one is missing, listed twice, changed since it was read (its version differs) or would
+     * take a unique key of another object. Versions are left to the caller.
+     * The caller holds the write locks for all the IDs.
+     * @return The objects replaced, in batch order, or null (with nothing changed) if the batch was rejected
+     */
+    List<T> replaceAll(Collection<T> batch, Map<String, T> objects, Function<T, String> idExtractor) {
+        Set<String> ids = new HashSet<>();
+        List<T> previous = new ArrayList<>(batch.size());
+        for (T object : batch) {
+            String id = idExtractor.apply(object);
+            T current = objects.get(id);
+            if (current == null || !ids.add(id) || Versions.of(current) != Versions.of(object)) {
+                return null;
+            }
+            previous.add(current);
+        }
+
+        if (!reserveAll(batch, idExtractor)) {
+            return null;
+        }
+
+        for (T object : batch) {
+            String id = idExtractor.apply(object);
+            objects.put(id, object);
+            commit(id, object);
+        }
+        return previous;
+    }
+
+    /**
+     * Claim the unique keys of several objects, or of none of them if one key is taken
+     * @return false (with nothing claimed) if the batch was rejected
+     */
+    boolean reserveAll(Collection<T> batch, Function<T, String> idExtractor) {
+        List<T> reserved = new ArrayList<>(batch.size());
+        for (T object : batch) {
+            if (!reserve(idExtractor.apply(object), object)) {
+                releaseAll(reserved, idExtractor);
+                return false;
+            }
+            reserved.add(object);
+        }
+        return true;
+    }
+
+    /**
+     * Give back the unique keys reserve() claimed for an object that is not going to be stored
+     */
+    void release(String id, T object) {
+        for (UniqueIndex<T> index : uniqueIndexes.values()) {
+            String key = index.keyExtractor.apply(object);
+            if (key != null && !key.equals(index.keysById.get(id))) {
+                index.idsByKey.remove(key, id);
+            }
+        }
+    }
+
+    /**
+     * Give back the unique keys reserveAll() claimed for a batch that is not going to be stored
+     */
+    void releaseAll(Collection<T> batch, Function<T, String> idExtractor) {
+        for (T object : batch) {
+            release(idExtractor.apply(object), object);
+        }
+    }
+
+    /**
+     * Remove several objects from a storage's map and every index, or none of them if
+     * one is not stored. The caller holds the write locks for all the IDs.
+     * @return false (with nothing changed) if the batch was rejected
+     */
+    boolean removeAll(Collection<String> ids, Map<String, T> objects) {
+        if (!objects.keySet().containsAll(ids)) {
+            return false;
+        }
+        for (String id : ids) {
+            if (objects.remove(id) != null) {
+                remove(id);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove every entry for an id
+     */
+    void remove(String id) {
+        for (UniqueIndex<T> index : uniqueIndexes.values()) {
+            String key = index.keysById.remove(id);
+            if (key != null) {
+                index.idsByKey.remove(key, id);
+            }
+        }
+
+        for (MultiIndex<T> index : multiIndexes.values()) {
+            Set<String> keys = index.keysById.remove(id);
+            if (keys != null) {
+                for (String key : keys) {
+                    index.remove(key, id);
+                }
+            }
+        }
+
+        for (SortedIndex<T> index : sortedIndexes.values()) {
+            String entry = index.entriesById.remove(id);
+            if (entry != null) {
+                index.idsByEntry.remove(entry, id);
+            }
+        }
+    }
+
+    /**
+     * Rebuild every index from scratch, e.g. after the storage reloaded its data
+     */
+    void rebuild(Map<String, T> objects) {
+        for (Map.Entry<String, UniqueIndex<T>> entry : uniqueIndexes.entrySet()) {
+            addUnique(entry.getKey(), entry.getValue().keyExtractor, objects);
+        }
+        for (Map.Entry<String, MultiIndex<T>> entry : multiIndexes.entrySet()) {
+            addMulti(entry.getKey(), entry.getValue().keysExtractor, objects);
+        }
+        for (Map.Entry<String, SortedIndex<T>> entry : sortedIndexes.entrySet()) {
+            addSorted(entry.getKey(), entry.getValue().keyExtractor, objects);
+        }
+    }
+
+    /**
+     * Id of the object owning a unique key
+     * @throws IllegalArgumentException if no unique index has that name
+     */
+    String findUnique(String name, String key) {
+        UniqueIndex<T> index = uniqueIndexes.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("No unique index named " + name);
+        }
+        return key == null ? null : index.idsByKey.get(key);
+    }
+
+    /**
+     * Ids of the objects having a key, in the order they were indexed
+     * @throws IllegalArgumentException if no index has that name
+     */
+    List<String> find(String name, String key) {
+        MultiIndex<T> index = multiIndexes.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("No index named " + name);
+        }
+
+        Set<String> ids = key == null ? null : index.idsByKey.get(key);
+        if (ids == null) {
+            return List.of();
+        }
+        synchronized (ids) {
+            return new ArrayList<>(ids);
+        }
+    }
+
+    /**
+     * One page of objects in the order of a sorted index.
+     * Only the entries of the requested page are visited, so the cost depends on the page size
+     * rather than on the number of objects stored.
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum number of objects on the page
+     * @throws IllegalArgumentException if no sorted index has that name
+     */
+    Page<T> page(String name, String cursor, int limit, Map<String, T> objects) {
+        SortedIndex<T> index = sortedIndexes.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("No sorted index named " + name);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+
+        NavigableMap<String, String> remaining = cursor == null
+                ? index.idsByEntry
+                : index.idsByEntry.tailMap(cursor, false);
+
+        List<T> items = new ArrayList<>(Math.min(limit, 64));
+        String last = null;
+        for (Map.Entry<String, String> entry : remaining.entrySet()) {
+            if (items.size() == limit) {
+                return new Page<>(items, last);
+            }
+            T object = objects.get(entry.getValue());
+            if (object != null) {
+                items.add(object);
+                last = entry.getKey();
+            }
+        }
+        return new Page<>(items, null);
+    }
+
+    /**
+     * Predicate matching the objects that have a key in an index, answerable by select()
+     * @throws IllegalArgumentException if no index has that name
+     */
+    IndexPredicate<T> predicate(String name, String key) {
+        UniqueIndex<T> unique = uniqueIndexes.get(name);
+        if (unique != null) {
+            return new IndexPredicate<>(this, name, key,
+                    object -> key != null && key.equals(unique.keyExtractor.apply(object)), null);
+        }
+
+        MultiIndex<T> multi = multiIndexes.get(name);
+        if (multi == null) {
+            throw new IllegalArgumentException("No index named " + name);
+        }
+        return new IndexPredicate<>(this, name, key,
+                object -> key != null && multi.keysOf(object).contains(key), null);
+    }
+
+    /**
+     * Objects matching a predicate. Predicates created by predicate() are answered from the index;
+     * anything else is checked against every object of the scan.
+     * @param objects The stored objects by id
+     * @param scan Supplies a stream over every stored object
+     */
+    Stream<T> select(Predicate<T> predicate, Map<String, T> objects, Supplier<Stream<T>> scan) {
+        if (!(predicate instanceof IndexPredicate<T> indexed) || !indexed.isFrom(this)) {
+            return scan.get().filter(predicate);
+        }
+
+        String name = indexed.getName();
+        List<String> ids;
+        if (uniqueIndexes.containsKey(name)) {
+            String id = findUnique(name, indexed.getKey());
+            ids = id != null ? List.of(id) : List.of();
+        } else {
+            ids = find(name, indexed.getKey());
+        }
+        return ids.stream()
+                .map(objects::get)
+                .filter(object -> object != null && indexed.testResidual(object));
+    }
+}
@@ -0,0 +1,139 @@
+package storage;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Writes snapshot files so that a crash never leaves a truncated data file behind.
+ * The snapshot is streamed to a temporary file, forced to disk and then atomically
+ * renamed over the live file. Previous snapshots are kept as numbered generations
+ * (e.g. papers.dat.1, papers.dat.2) so an older copy is available for recovery.
+ */
+public class SnapshotWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Callback that writes the snapshot contents
+     */
+    @FunctionalInterface
+    public interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Duration and size of a completed snapshot
+     */
+    public record Stats(long durationNanos, long bytesWritten) {
+        public double durationMillis() {
+            return durationNanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Snapshot{bytes=%d, duration=%.2fms}", bytesWritten, durationMillis());
+        }
+    }
+
+    private final Path target;
+    private final int generations;
+    private volatile Stats lastStats;
+
+    /**
+     * Constructor
+     * @param fileName Name of the live snapshot file
+     * @param generations Number of previous snapshots to keep (0 keeps none)
+     */
+    public SnapshotWriter(String fileName, int generations) {
+        this.target = Path.of(fileName);
+        this.generations = Math.max(0, generations);
+    }
+
+    /**
+     * Write a new snapshot and atomically replace the live file with it
+     * @return Duration and size of the snapshot
+     */
+    public Stats write(Body body) throws IOException {
+        long start = System.nanoTime();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long bytes;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            body.writeTo(out);
+            out.flush();
+            channel.force(true);
+            bytes = channel.size();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        rotateGenerations();
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+
+        lastStats = new Stats(System.nanoTime() - start, bytes);
+        return lastStats;
+    }
+
+    /**
+     * Shift file.1 -> file.2 and so on, then keep the live file as file.1
+     */
+    private void rotateGenerations() throws IOException {
+        if (generations == 0 || !Files.exists(target)) {
+            return;
+        }
+
+        for (int i = generations - 1; i >= 1; i--) {
+            Path from = generation(i);
+            if (Files.exists(from)) {
+                Files.move(from, generation(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        // Link rather than move, so the live file is never missing
+        Path previous = generation(1);
+        Files.deleteIfExists(previous);
+        try {
+            Files.createLink(previous, target);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(target, previous, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Make the rename itself durable; not every platform allows opening a directory
+     */
+    private void syncDirectory() {
+        Path dir = target.toAbsolutePath().getParent();
+        if (dir == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort only
+        }
+    }
+
+    /**
+     * Path of an older snapshot generation (1 is the most recent)
+     */
+    public Path generation(int n) {
+        return target.resolveSibling(target.getFileName() + "." + n);
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    /**
+     * Stats of the most recent snapshot, or null if none has been written yet
+     */
+    public Stats getLastStats() {
+        return lastStats;
+    }
+}
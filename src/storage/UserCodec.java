@@ -0,0 +1,73 @@
+package storage;
+
+import model.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static storage.BinaryCodecs.*;
+
+/**
+ * Binary codec for the User hierarchy.
+ * Each record starts with a one-byte tag naming the concrete subclass.
+ */
+public class UserCodec implements EntityCodec<User> {
+    private static final int VERSION = 1;
+
+    private static final byte STUDENT = 1;
+    private static final byte FACULTY = 2;
+    private static final byte ADMIN = 3;
+
+    @Override
+    public int version() {
+        return VERSION;
+    }
+
+    @Override
+    public void encode(User user, DataOutput out) throws IOException {
+        if (user instanceof Student) {
+            out.writeByte(STUDENT);
+        } else if (user instanceof Faculty) {
+            out.writeByte(FACULTY);
+        } else if (user instanceof Admin) {
+            out.writeByte(ADMIN);
+        } else {
+            throw new IOException("Unsupported user type: " + user.getClass().getName());
+        }
+
+        writeString(out, user.getUserId());
+        writeString(out, user.getName());
+        writeString(out, user.getEmail());
+        writeString(out, user.getPassword());
+
+        if (user instanceof Student student) {
+            writeString(out, student.getDepartment());
+            writeString(out, student.getStudentId());
+        } else if (user instanceof Faculty faculty) {
+            writeString(out, faculty.getDepartment());
+            writeString(out, faculty.getPosition());
+            out.writeBoolean(faculty.isReviewer());
+        } else if (user instanceof Admin admin) {
+            writeString(out, admin.getAdminLevel());
+            out.writeBoolean(admin.isAdmin());
+        }
+    }
+
+    @Override
+    public User decode(DataInput in, int version) throws IOException {
+        byte type = in.readByte();
+        String userId = readString(in);
+        String name = readString(in);
+        String email = readString(in);
+        String password = readString(in);
+
+        return switch (type) {
+            case STUDENT -> new Student(userId, name, email, password, readString(in), readString(in));
+            case FACULTY -> new Faculty(userId, name, email, password,
+                    readString(in), readString(in), in.readBoolean());
+            case ADMIN -> new Admin(userId, name, email, password, readString(in), in.readBoolean());
+            default -> throw new IOException("Unknown user type tag: " + type);
+        };
+    }
+}
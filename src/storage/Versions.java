@@ -0,0 +1,57 @@
+package storage;
+
+import model.Versioned;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Version stamp helpers shared by the DataStorage implementations.
+ * Objects that do not implement Versioned are treated as always being at version 0.
+ */
+final class Versions {
+
+    private Versions() {
+    }
+
+    static long of(Object object) {
+        return object instanceof Versioned versioned ? versioned.getVersion() : 0;
+    }
+
+    /**
+     * Stamp the object about to replace the current one with the next version
+     * @return The version stamped
+     */
+    static long advance(Object current, Object next) {
+        long version = of(current) + 1;
+        set(next, version);
+        return version;
+    }
+
+    /**
+     * Stamp each object of a batch with the version following the object it replaces
+     */
+    static <T> void advanceAll(List<T> current, Collection<T> next) {
+        Iterator<T> replaced = current.iterator();
+        for (T object : next) {
+            advance(replaced.next(), object);
+        }
+    }
+
+    static void set(Object object, long version) {
+        if (object instanceof Versioned versioned) {
+            versioned.setVersion(version);
+        }
+    }
+
+    /**
+     * compareAndUpdate is meaningless without a version stamp
+     */
+    static void requireVersioned(Object object) {
+        if (!(object instanceof Versioned)) {
+            throw new IllegalArgumentException("compareAndUpdate requires a Versioned object: "
+                    + object.getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,530 @@
+package storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of storage mutations.
+ * Each mutation is written as one small record instead of rewriting the whole data file,
+ * and the log is replayed on top of the last snapshot when the storage is loaded.
+ *
+ * Record layout: [op:1][length:4][crc32:4][payload:length]
+ * Put payloads start with the codec version they were encoded with.
+ * Batch payloads hold several put and delete records ([op:1][length:4][payload:length] each)
+ * under one checksum, so a batch is replayed completely or not at all.
+ *
+ * With SyncPolicy.GROUP, appends return at once and a flusher thread forces everything
+ * appended so far (up to a maximum batch) to disk with a single fsync. Records appended
+ * while an fsync is running form the next group, so groups grow with the load and a lone
+ * writer is not slowed down; an optional window makes the flusher linger for more records.
+ * The future returned by each append completes once its record is durable, so callers can
+ * wait for it after releasing their own locks and many writers share one fsync.
+ *
+ * A failed append is cut off again, so the log never holds a partial record before good ones.
+ * A failed fsync cannot be retried safely (the kernel may already have dropped the pages),
+ * so after one every later append and sync fails too.
+ * @param <T> Type of objects being logged
+ */
+public class WriteAheadLog<T> implements Closeable {
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_BATCH = 3;
+    private static final int HEADER_SIZE = 9;
+
+    /**
+     * When the log is forced to disk
+     */
+    public enum SyncPolicy {
+        ALWAYS,   // fsync after every record
+        BATCH,    // fsync once every syncInterval records
+        NEVER,    // leave flushing to the operating system
+        GROUP     // one fsync per group of concurrent records, callers wait for their group
+    }
+
+    /**
+     * Number of records appended and of fsyncs that made them durable
+     */
+    public record SyncStats(long records, long syncs) {
+        public double recordsPerSync() {
+            return syncs == 0 ? 0.0 : (double) records / syncs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Sync{records=%d, syncs=%d, recordsPerSync=%.1f}", records, syncs, recordsPerSync());
+        }
+    }
+
+    public static final long DEFAULT_GROUP_WINDOW_MICROS = 0;  // sync as soon as the previous fsync is done
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final Path path;
+    private final EntityCodec<T> codec;
+    private final SyncPolicy syncPolicy;
+    private final int syncInterval;
+    private final long compactionThreshold;
+    private final long groupWindowNanos;
+    private volatile FileChannel channel;
+    private volatile long length;  // bytes in the log while the channel is open
+    private volatile IOException failure;  // set once the log can no longer be trusted
+    private int unsyncedRecords;
+    private volatile long records;
+    private volatile long syncs;
+
+    // Group commit state, guarded by groupLock
+    private final Object groupLock = new Object();
+    private final List<CompletableFuture<Void>> waiting = new ArrayList<>();
+    private long firstWaitingNanos;
+    private Thread flusher;
+    private boolean closing;
+
+    /**
+     * Constructor
+     * @param fileName Name of the log file
+     * @param codec Codec used to encode objects in put records
+     * @param syncPolicy When appended records are forced to disk
+     * @param syncInterval Number of records between syncs for SyncPolicy.BATCH
+     * @param compactionThreshold Log size in bytes after which the log should be folded into a snapshot
+     */
+    public WriteAheadLog(String fileName, EntityCodec<T> codec, SyncPolicy syncPolicy,
+                         int syncInterval, long compactionThreshold) {
+        this(fileName, codec, syncPolicy, syncInterval, compactionThreshold, DEFAULT_GROUP_WINDOW_MICROS);
+    }
+
+    /**
+     * Constructor
+     * @param fileName Name of the log file
+     * @param codec Codec used to encode objects in put records
+     * @param syncPolicy When appended records are forced to disk
+     * @param syncInterval Records between syncs for SyncPolicy.BATCH, or the largest group for SyncPolicy.GROUP
+     * @param compactionThreshold Log size in bytes after which the log should be folded into a snapshot
+     * @param groupWindowMicros How long SyncPolicy.GROUP lingers for more records before syncing
+     */
+    public WriteAheadLog(String fileName, EntityCodec<T> codec, SyncPolicy syncPolicy,
+                         int syncInterval, long compactionThreshold, long groupWindowMicros) {
+        this.path = Path.of(fileName);
+        this.codec = codec;
+        this.syncPolicy = syncPolicy;
+        this.syncInterval = Math.max(1, syncInterval);
+        this.compactionThreshold = compactionThreshold;
+        this.groupWindowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, groupWindowMicros));
+    }
+
+    /**
+     * Append a record that inserts or replaces an object.
+     * Appends must not run concurrently; the storage calls them while holding its lock.
+     * @return Completes once the record is on disk (at once unless the policy is GROUP)
+     */
+    public CompletableFuture<Void> appendPut(T object) throws IOException {
+        return append(OP_PUT, encodePut(object));
+    }
+
+    private byte[] encodePut(T object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(codec.version());
+        codec.encode(object, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Append a record that deletes an object
+     * @return Completes once the record is on disk (at once unless the policy is GROUP)
+     */
+    public CompletableFuture<Void> appendDelete(String id) throws IOException {
+        return append(OP_DELETE, id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Append one record that inserts or replaces several objects and deletes others.
+     * It is written and synced as a single record, so after a crash either all of its
+     * changes are replayed or none.
+     * @return Completes once the record is on disk (at once unless the policy is GROUP)
+     */
+    public CompletableFuture<Void> appendBatch(Collection<T> puts, Collection<String> deletes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (T object : puts) {
+            writeBatchEntry(out, OP_PUT, encodePut(object));
+        }
+        for (String id : deletes) {
+            writeBatchEntry(out, OP_DELETE, id.getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush();
+        return append(OP_BATCH, bytes.toByteArray());
+    }
+
+    private static void writeBatchEntry(DataOutputStream out, byte op, byte[] payload) throws IOException {
+        out.writeByte(op);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    private CompletableFuture<Void> append(byte op, byte[] payload) throws IOException {
+        checkUsable();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.put(op).putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+        FileChannel ch = channel();
+        long start = length;
+        try {
+            while (buffer.hasRemaining()) {
+                ch.write(buffer);
+            }
+        } catch (IOException e) {
+            cutOff(start, e);
+            throw e;
+        }
+        length = start + buffer.limit();
+
+        records++;
+        if (syncPolicy == SyncPolicy.GROUP) {
+            return awaitGroup();
+        }
+
+        unsyncedRecords++;
+        if (syncPolicy == SyncPolicy.ALWAYS
+                || (syncPolicy == SyncPolicy.BATCH && unsyncedRecords >= syncInterval)) {
+            try {
+                sync();
+            } catch (IOException e) {
+                // Not durable, so it must not be replayed either
+                cutOff(start, e);
+                throw e;
+            }
+        }
+        return DONE;
+    }
+
+    /**
+     * Remove the partial or unsynced record of a failed append.
+     * If even that fails, the log is given up: a later record after a bad one would be lost on replay.
+     */
+    private void cutOff(long start, IOException cause) {
+        try {
+            channel.truncate(start);
+            length = start;
+        } catch (IOException e) {
+            fail(cause);
+        }
+    }
+
+    private void fail(IOException cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+    }
+
+    private void checkUsable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Log " + path.getFileName() + " is unusable after an earlier error: "
+                    + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Force all appended records to disk
+     */
+    public void sync() throws IOException {
+        if (channel != null && unsyncedRecords > 0) {
+            force();
+        }
+    }
+
+    /**
+     * Force everything appended so far to disk, whatever the sync policy
+     */
+    public void force() throws IOException {
+        checkUsable();
+        if (channel == null) {
+            return;
+        }
+        try {
+            codec.sync();
+            channel.force(false);
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+        syncs++;
+        unsyncedRecords = 0;
+    }
+
+    /**
+     * Where the next record will start, to pass to discardFrom() if it has to be taken back
+     */
+    public long end() throws IOException {
+        channel();
+        return length;
+    }
+
+    /**
+     * Remove every record from the given position on, e.g. records whose sync failed and which
+     * must not be replayed. Allowed after a failure, as it only takes data away.
+     */
+    public void discardFrom(long position) throws IOException {
+        channel().truncate(position);
+        channel.force(true);
+        length = Math.min(length, position);
+    }
+
+    /**
+     * Join the group that the flusher will sync next
+     */
+    private CompletableFuture<Void> awaitGroup() {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        synchronized (groupLock) {
+            if (flusher == null) {
+                closing = false;
+                flusher = Thread.ofPlatform().daemon().name("wal-flusher-" + path.getFileName()).start(this::flushGroups);
+            }
+            if (waiting.isEmpty()) {
+                firstWaitingNanos = System.nanoTime();
+            }
+            waiting.add(durable);
+            if (waiting.size() == 1 || waiting.size() >= syncInterval) {
+                groupLock.notifyAll();
+            }
+        }
+        return durable;
+    }
+
+    /**
+     * Flusher thread: take everything waiting (after lingering for the window, if any) and sync it with one fsync
+     */
+    private void flushGroups() {
+        while (true) {
+            List<CompletableFuture<Void>> group;
+            synchronized (groupLock) {
+                try {
+                    while (waiting.isEmpty() && !closing) {
+                        groupLock.wait();
+                    }
+                    if (waiting.isEmpty()) {
+                        return;
+                    }
+                    long remaining;
+                    while (!closing && waiting.size() < syncInterval
+                            && (remaining = firstWaitingNanos + groupWindowNanos - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(groupLock, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    closing = true;
+                }
+                group = new ArrayList<>(waiting);
+                waiting.clear();
+            }
+
+            try {
+                checkUsable();
+                FileChannel ch = channel;
+                if (ch != null) {
+                    codec.sync();
+                    ch.force(false);
+                }
+                syncs++;
+                group.forEach(durable -> durable.complete(null));
+            } catch (IOException e) {
+                fail(e);
+                group.forEach(durable -> durable.completeExceptionally(e));
+            }
+        }
+    }
+
+    /**
+     * Number of records appended and fsyncs performed since the log was opened
+     */
+    public SyncStats getSyncStats() {
+        return new SyncStats(records, syncs);
+    }
+
+    /**
+     * Apply every complete record in the log to the given map.
+     * A torn record at the end of the log (e.g. after a crash mid-append) is discarded.
+     * A complete record that cannot be decoded (e.g. written by a newer version) fails the
+     * replay instead, leaving the log untouched and the map holding every earlier record.
+     * @return number of records applied
+     * @throws IOException if the log cannot be read or holds a record that cannot be decoded
+     */
+    public int replay(Map<String, T> target, Function<T, String> idExtractor) throws IOException {
+        File file = path.toFile();
+        if (!file.exists()) {
+            return 0;
+        }
+
+        int applied = 0;
+        long validLength = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > file.length()) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                // Decode the whole record first, so a batch is applied completely or not at all
+                List<Change<T>> changes;
+                try {
+                    changes = decode(op, payload);
+                } catch (IOException | RuntimeException e) {
+                    throw new IOException("Log " + path.getFileName() + " has a record at offset " + validLength
+                            + " that cannot be decoded: " + e.getMessage(), e);
+                }
+                for (Change<T> change : changes) {
+                    if (change.object() != null) {
+                        target.put(idExtractor.apply(change.object()), change.object());
+                    } else {
+                        target.remove(change.deletedId());
+                    }
+                }
+
+                applied++;
+                validLength += HEADER_SIZE + payload.length;
+            }
+        }
+
+        // Drop any partial tail so new records are appended after the last good one
+        if (validLength < file.length()) {
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                ch.truncate(validLength);
+            }
+        }
+
+        return applied;
+    }
+
+    /**
+     * One put (object set) or delete (deletedId set) decoded from the log
+     */
+    private record Change<T>(T object, String deletedId) {
+    }
+
+    /**
+     * Decode the changes of a put, delete or batch record
+     * @throws IOException if the op is unknown or the payload is malformed
+     */
+    private List<Change<T>> decode(byte op, byte[] payload) throws IOException {
+        if (op != OP_BATCH) {
+            return List.of(decodeEntry(op, payload));
+        }
+
+        List<Change<T>> changes = new ArrayList<>();
+        DataInputStream batch = new DataInputStream(new ByteArrayInputStream(payload));
+        while (batch.available() > 0) {
+            byte entryOp = batch.readByte();
+            byte[] entry = new byte[batch.readInt()];
+            batch.readFully(entry);
+            changes.add(decodeEntry(entryOp, entry));
+        }
+        return changes;
+    }
+
+    private Change<T> decodeEntry(byte op, byte[] payload) throws IOException {
+        if (op == OP_PUT) {
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+            return new Change<>(codec.decode(record, record.readShort()), null);
+        }
+        if (op == OP_DELETE) {
+            return new Change<>(null, new String(payload, StandardCharsets.UTF_8));
+        }
+        throw new IOException("unknown op " + op);
+    }
+
+    /**
+     * Discard all records, called once they have been folded into a snapshot
+     */
+    public void reset() throws IOException {
+        checkUsable();
+        channel().truncate(0);
+        channel.force(true);
+        length = 0;
+        unsyncedRecords = 0;
+    }
+
+    /**
+     * Current size of the log in bytes
+     */
+    public long size() throws IOException {
+        return channel != null ? length : path.toFile().length();
+    }
+
+    /**
+     * Whether the log has grown past its compaction threshold
+     */
+    public boolean needsCompaction() throws IOException {
+        return size() >= compactionThreshold;
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            FileChannel opened = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            length = opened.size();
+            channel = opened;
+        }
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread groupFlusher;
+        synchronized (groupLock) {
+            closing = true;
+            groupLock.notifyAll();
+            groupFlusher = flusher;
+            flusher = null;
+        }
+        if (groupFlusher != null) {
+            try {
+                groupFlusher.join();  // lets it sync the last group
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (channel != null) {
+            sync();
+            channel.close();
+            channel = null;
+        }
+    }
+}